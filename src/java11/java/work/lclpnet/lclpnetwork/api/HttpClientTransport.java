@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import work.lclpnet.lclpnetwork.metrics.RequestPhase;
+import work.lclpnet.lclpnetwork.metrics.RequestTimings;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * An {@link APITransport} backed by the non-blocking {@link HttpClient} of Java 11.
+ * Asynchronous requests do not occupy a thread while they wait for the server:
+ * the response body is received into memory without blocking and decoded once it is complete.
+ * The client pools and reuses connections on its own, and uses HTTP/2 if the server supports it.
+ * <p>
+ * This class requires Java 11 or later. It is contained in the Java 11 section of the multi-release jar,
+ * so it does not exist on older runtimes.
+ * <p>
+ * The client does not expose connection setup, so the {@link RequestPhase#CONNECT} and {@link RequestPhase#WRITE}
+ * phases are included in {@link RequestPhase#WAIT}.
+ */
+public class HttpClientTransport implements APITransport {
+
+    protected final HttpClient client;
+    protected volatile boolean compression = true;
+    protected final TransferStats transferStats = new TransferStats();
+
+    /**
+     * Creates a transport with a new client, which follows redirects like {@link java.net.HttpURLConnection}.
+     */
+    public HttpClientTransport() {
+        this(HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build());
+    }
+
+    /**
+     * @param client The client to send requests with.
+     */
+    public HttpClientTransport(HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @return The client which sends the requests.
+     */
+    public HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return Whether compressed responses are requested.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets whether compressed responses should be requested, using the Accept-Encoding header.
+     * @param compression True, if gzip and deflate compressed responses should be accepted.
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return The statistics of the response bytes received over the wire and after decompression.
+     */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    @Override
+    public APIResponse execute(APIRequest request) throws APIException {
+        try {
+            return executeAsync(request, null).join();
+        } catch (CompletionException e) {
+            throw toAPIException(e);
+        }
+    }
+
+    /**
+     * Send a request without blocking.
+     *
+     * @param request The request to send.
+     * @param executor The executor to decode the response on, or null to decode it on a thread of the client.
+     * @return A completable future that will contain the response of the server.
+     */
+    @Override
+    public CompletableFuture<APIResponse> executeAsync(APIRequest request, @Nullable Executor executor) {
+        final RequestTimings timings = new RequestTimings(System.nanoTime());
+
+        final HttpRequest httpRequest;
+        final long length;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUrl().toURI());
+            request.getHeaders().forEach(builder::header);
+            if (compression && !request.getHeaders().containsKey("Accept-Encoding"))
+                builder.header("Accept-Encoding", "gzip, deflate");
+
+            RequestBody body = request.getRequestBody();
+            if (body == null) {
+                length = 0L;
+                builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+            } else {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(body.getContentLength() > 0 ? (int) body.getContentLength() : 1024);
+                body.writeTo(out);
+                length = out.size();
+                builder.method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(out.toByteArray()));
+            }
+
+            httpRequest = builder.build();
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            CompletableFuture<APIResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new APIException(e));
+            return failed;
+        }
+
+        final long[] headersReceived = new long[1];
+        CompletableFuture<HttpResponse<byte[]>> sent = client.sendAsync(httpRequest, info -> {
+            headersReceived[0] = System.nanoTime();
+            timings.record(RequestPhase.WAIT, headersReceived[0] - timings.getStartNanos());
+            return HttpResponse.BodySubscribers.ofByteArray();
+        });
+
+        Function<HttpResponse<byte[]>, APIResponse> read = response -> {
+            timings.record(RequestPhase.READ, System.nanoTime() - headersReceived[0]);
+
+            try {
+                APIResponse apiResponse = APIResponse.fromBody(response.statusCode(), new ByteArrayInputStream(response.body()),
+                        response.headers().firstValue("Content-Encoding").orElse(null),
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null),
+                        transferStats, request.getResponseType(), request.getResponseAdapter(), timings);
+                apiResponse.requestBytes = length;
+                return apiResponse;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        };
+
+        CompletableFuture<APIResponse> future = executor == null ? sent.thenApply(read) : sent.thenApplyAsync(read, executor);
+        CompletableFuture<APIResponse> result = new CompletableFuture<>();
+
+        future.whenComplete((response, error) -> {
+            if (error != null) result.completeExceptionally(toAPIException(error));
+            else result.complete(response);
+        });
+
+        return result;
+    }
+
+    private static APIException toAPIException(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+            error = error.getCause();
+
+        if (error instanceof APIException) return (APIException) error;
+        if (error instanceof ConnectException) return APIException.NO_CONNECTION;
+        return new APIException(error);
+    }
+}
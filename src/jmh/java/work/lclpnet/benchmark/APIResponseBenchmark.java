@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import work.lclpnet.lclpnetwork.api.APIResponse;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of buffered responses, as done by APIAccess and the API classes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class APIResponseBenchmark {
+
+    @Benchmark
+    public void classifyError(Blackhole blackhole) {
+        APIResponse response = new APIResponse(422, null, Payloads.VALIDATION_ERROR);
+        blackhole.consume(response.hasInvalidScopes());
+        blackhole.consume(response.getJsonStatusMessage());
+        blackhole.consume(response.hasValidationViolations());
+        blackhole.consume(response.getValidationViolations());
+    }
+
+    @Benchmark
+    public void forbidden(Blackhole blackhole) {
+        APIResponse response = new APIResponse(403, null, "{\"message\":\"Invalid scope(s) provided.\"}");
+        blackhole.consume(response.isUnauthenticated());
+        blackhole.consume(response.hasInvalidScopes());
+    }
+
+    @Benchmark
+    public MCPlayer responseAs() {
+        return new APIResponse(200, Payloads.MC_PLAYER, null).getResponseAs(MCPlayer.class);
+    }
+}
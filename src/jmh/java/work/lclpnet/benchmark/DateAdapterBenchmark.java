@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+import work.lclpnet.lclpnetwork.util.FixedLayoutDateAdapter;
+import work.lclpnet.lclpnetwork.util.JsonDateAdapter;
+import work.lclpnet.lclpnetwork.util.UTCDateAdapter;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deprecated SimpleDateFormat based adapters ("legacy") compared to the fixed layout adapters ("fixed").
+ * Both run through a Gson instance, like they do when decoding models.
+ * The legacy adapters are not thread-safe, so this benchmark uses a single thread.
+ */
+@SuppressWarnings("deprecation")
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DateAdapterBenchmark {
+
+    private static final String UTC = "\"2022-03-04T05:06:07.123456Z\"";
+    private static final String YMDHMS = "\"2022-03-04 05:06:07\"";
+
+    @Param({"fixed", "legacy"})
+    public String adapter;
+
+    private Gson utcGson, ymdhmsGson;
+    private Date date;
+
+    @Setup
+    public void setup() {
+        boolean fixed = "fixed".equals(adapter);
+
+        utcGson = new GsonBuilder()
+                .registerTypeAdapter(Date.class, fixed ? new FixedLayoutDateAdapter.UTC() : new UTCDateAdapter())
+                .create();
+        ymdhmsGson = new GsonBuilder()
+                .registerTypeAdapter(Date.class, fixed ? new FixedLayoutDateAdapter.YMDHMS() : new JsonDateAdapter.YMDHMS())
+                .create();
+
+        date = new Date(1646370367123L);
+    }
+
+    @Benchmark
+    public Date parseUtc() {
+        return utcGson.fromJson(UTC, Date.class);
+    }
+
+    @Benchmark
+    public String formatUtc() {
+        return utcGson.toJson(date);
+    }
+
+    @Benchmark
+    public Date parseYmdhms() {
+        return ymdhmsGson.fromJson(YMDHMS, Date.class);
+    }
+
+    @Benchmark
+    public String formatYmdhms() {
+        return ymdhmsGson.toJson(date);
+    }
+}
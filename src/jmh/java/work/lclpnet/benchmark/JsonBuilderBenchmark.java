@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.benchmark;
+
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.*;
+import work.lclpnet.lclpnetwork.api.RequestBody;
+import work.lclpnet.lclpnetwork.util.JsonBuilder;
+import work.lclpnet.lclpnetwork.util.JsonStreamBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body construction, as done by LCLPMinecraftAPI.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBuilderBenchmark {
+
+    private static final String UUID = "7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a";
+
+    private List<String> uuids;
+
+    @Setup
+    public void setup() {
+        uuids = Payloads.uuids(100);
+    }
+
+    @Benchmark
+    public JsonObject treeSingle() {
+        return JsonBuilder.object().set("uuid", UUID).createObject();
+    }
+
+    @Benchmark
+    public byte[] treeSingleEncoded() {
+        return JsonBuilder.object().set("uuid", UUID).createObject().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public RequestBody streamSingle() {
+        return JsonStreamBuilder.localObject().set("uuid", UUID).createBody();
+    }
+
+    @Benchmark
+    public JsonObject treeBulk() {
+        return JsonBuilder.object().beginArray("uuids").addAll(uuids).endArray().createObject();
+    }
+
+    @Benchmark
+    public RequestBody streamBulk() {
+        return JsonStreamBuilder.localObject().beginArray("uuids").addAll(uuids).endArray().createBody();
+    }
+}
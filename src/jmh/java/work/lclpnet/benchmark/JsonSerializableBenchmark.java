@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+import work.lclpnet.lclpnetwork.model.JsonSerializable;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializableBenchmark {
+
+    private JsonElement tree;
+    private MCPlayer player;
+
+    @Setup
+    public void setup() {
+        tree = JsonParser.parseString(Payloads.MC_PLAYER);
+        player = JsonSerializable.parse(Payloads.MC_PLAYER, MCPlayer.class);
+    }
+
+    @Benchmark
+    public MCPlayer parse() {
+        return JsonSerializable.parse(Payloads.MC_PLAYER, MCPlayer.class);
+    }
+
+    @Benchmark
+    public MCPlayer cast() {
+        return JsonSerializable.cast(tree, MCPlayer.class);
+    }
+
+    @Benchmark
+    public String stringify() {
+        return player.toString();
+    }
+
+    @Benchmark
+    public JsonElement toJson() {
+        return player.toJson();
+    }
+}
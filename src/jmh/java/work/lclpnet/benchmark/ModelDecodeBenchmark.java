@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+import work.lclpnet.lclpnetwork.model.MCStats;
+import work.lclpnet.lclpnetwork.model.User;
+import work.lclpnet.lclpnetwork.util.FixedLayoutDateAdapter;
+import work.lclpnet.lclpnetwork.util.GsonAccess;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the model classes by the model adapters ("model") and by Gson's reflective adapter ("reflective").
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelDecodeBenchmark {
+
+    @Param({"model", "reflective"})
+    public String decoder;
+
+    private Gson gson;
+    private String stats;
+    private MCStats decodedStats;
+    private TypeAdapter<MCStats> selectiveAdapter;
+
+    @Setup
+    public void setup() {
+        if ("model".equals(decoder)) gson = GsonAccess.getGson();
+        else gson = new GsonBuilder()
+                .excludeFieldsWithoutExposeAnnotation()
+                .registerTypeAdapter(Date.class, new FixedLayoutDateAdapter.UTC())
+                .create();
+
+        stats = Payloads.stats(20, 12, 4);
+        decodedStats = gson.fromJson(stats, MCStats.class);
+        selectiveAdapter = MCStats.selectiveAdapter(Arrays.asList("module3", "module7/stat1"), gson);
+    }
+
+    @Benchmark
+    public User user() {
+        return gson.fromJson(Payloads.USER, User.class);
+    }
+
+    @Benchmark
+    public MCPlayer mcPlayer() {
+        return gson.fromJson(Payloads.MC_PLAYER, MCPlayer.class);
+    }
+
+    @Benchmark
+    public MCStats mcStats() {
+        return gson.fromJson(stats, MCStats.class);
+    }
+
+    @Benchmark
+    public MCStats mcStatsSelective() throws IOException {
+        return selectiveAdapter.fromJson(stats);
+    }
+
+    /**
+     * Reads values of a decoded MCStats, like a scoreboard would.
+     */
+    @Benchmark
+    public void mcStatsLookup(Blackhole blackhole) {
+        for (int m = 1; m < 20; m++) {
+            String module = "module" + (m % 10);
+            MCStats.Value wins = decodedStats.get(module + "/stat1");
+            MCStats.Value last = decodedStats.get(module + "/group2/last3");
+
+            blackhole.consume(wins == null ? 0 : wins.getAsInt());
+            blackhole.consume(last == null ? 0L : last.getAsEpochMillis());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sample response bodies, as sent by the LCLPNetwork API.
+ */
+final class Payloads {
+
+    static final String USER = "{\"id\":7,\"name\":\"LCLP\",\"email\":\"lclp@example.com\",\"email_verified_at\":\"2021-01-02T03:04:05.000000Z\"," +
+            "\"created_at\":\"2020-01-02T03:04:05.123456Z\",\"updated_at\":\"2022-01-02T03:04:05.123456Z\",\"name_changed_at\":\"2021-06-07 08:09:10\"}";
+
+    static final String MC_PLAYER = "{\"id\":12,\"uuid\":\"7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a\",\"points\":100,\"coins\":250,\"language\":\"en_us\"," +
+            "\"last_seen\":\"2022-03-04T05:06:07.000000Z\",\"mc_user\":{\"user_id\":7,\"uuid\":\"7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a\"," +
+            "\"created_at\":\"2020-01-02T03:04:05.000000Z\",\"updated_at\":\"2020-01-02T03:04:05.000000Z\",\"user\":" + USER + "}}";
+
+    static final String VALIDATION_ERROR = "{\"message\":\"The given data was invalid.\",\"errors\":{\"uuid\":[\"The uuid field is required.\"]," +
+            "\"modules\":[\"The modules must be an array.\",\"The modules may not have more than 32 items.\"]}}";
+
+    private Payloads() {}
+
+    /**
+     * Creates a MCStats document.
+     *
+     * @param modules The number of modules.
+     * @param properties The number of properties of every entry.
+     * @param children The number of children of every module.
+     * @return The JSON text of the stats.
+     */
+    static String stats(int modules, int properties, int children) {
+        StringBuilder json = new StringBuilder("{\"schema_version\":1,\"stats\":[");
+
+        for (int m = 0; m < modules; m++) {
+            if (m > 0) json.append(',');
+            appendEntry(json, m == 0 ? "general" : "game", "module" + m, properties, children);
+        }
+
+        return json.append("]}").toString();
+    }
+
+    private static void appendEntry(StringBuilder json, String type, String name, int properties, int children) {
+        json.append("{\"type\":\"").append(type).append("\",\"name\":\"").append(name)
+                .append("\",\"title\":\"").append(name.toUpperCase()).append("\",\"icon\":{\"minecraft\":\"minecraft:book\"},\"properties\":{");
+
+        for (int p = 0; p < properties; p++) {
+            if (p > 0) json.append(',');
+            if (p % 4 == 3) json.append("\"last").append(p).append("\":{\"type\":\"date\",\"value\":\"2022-03-04T05:06:07.123456Z\"}");
+            else json.append("\"stat").append(p).append("\":{\"type\":\"int\",\"value\":").append(p * 37).append('}');
+        }
+
+        json.append("},\"children\":[");
+        for (int c = 0; c < children; c++) {
+            if (c > 0) json.append(',');
+            appendEntry(json, "group", "group" + c, properties, 0);
+        }
+        json.append("]}");
+    }
+
+    /**
+     * @param count The number of UUIDs.
+     * @return Random UUID strings.
+     */
+    static List<String> uuids(int count) {
+        List<String> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) uuids.add(UUID.randomUUID().toString());
+        return uuids;
+    }
+}
@@ -12,8 +12,10 @@ import work.lclpnet.lclpnetwork.api.APIAccess;
 import work.lclpnet.lclpnetwork.api.ResponseEvaluationException;
 import work.lclpnet.lclpnetwork.api.annotation.AuthRequired;
 import work.lclpnet.lclpnetwork.api.annotation.Scopes;
+import work.lclpnet.lclpnetwork.cache.LookupCache;
 import work.lclpnet.lclpnetwork.model.User;
 
+import javax.annotation.Nullable;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
@@ -33,6 +35,7 @@ public class LCLPNetworkAPI {
     /* */
 
     protected final APIAccess api;
+    protected volatile LookupCache<Integer, User> userCache = null;
 
     /**
      * Construct a new LCLPNetworkAPI object.
@@ -49,16 +52,43 @@ public class LCLPNetworkAPI {
         return api;
     }
 
+    /**
+     * @return The cache of {@link #getUserById(int)}, or null if users are not cached.
+     */
+    @Nullable
+    public LookupCache<Integer, User> getUserCache() {
+        return userCache;
+    }
+
+    /**
+     * Sets the cache used by {@link #getUserById(int)}.
+     * @param userCache The cache to use, or null to disable caching.
+     */
+    public void setUserCache(@Nullable LookupCache<Integer, User> userCache) {
+        this.userCache = userCache;
+    }
+
     /**
      * Gets a user by id.
+     * Will result in null, if there is no user with that id.
+     * Fails with a {@link ResponseEvaluationException}, if the server answered with another error (e.g. 429 or 5xx).
      *
      * @param id The id of the user.
      * @return A completable future that will contain the User.
      */
     public CompletableFuture<User> getUserById(int id) {
+        LookupCache<Integer, User> cache = this.userCache;
+        if (cache != null) return cache.get(id, this::fetchUserById);
+        else return fetchUserById(id);
+    }
+
+    protected CompletableFuture<User> fetchUserById(int id) {
         return api.post("api/auth/user-by-id", object().set("userId", id).createObject()).thenApply(resp -> {
-            if(resp.getResponseCode() != 200) return null;
-            else return resp.getExtra(User.class);
+            // only an unknown user is cached as absent, not e.g. a rate limit or an outage
+            if(resp.getResponseCode() == 404) return null;
+            if(resp.getResponseCode() != 200) throw new ResponseEvaluationException(resp);
+
+            return resp.getExtra(User.class);
         });
     }
 
@@ -87,7 +117,7 @@ public class LCLPNetworkAPI {
     @AuthRequired
     @Scopes("identity")
     public CompletableFuture<User> getCurrentUser() {
-        return api.get("api/auth/user").thenApply(resp -> {
+        return api.get("api/auth/user", User.class).thenApply(resp -> {
             if(resp.getResponseCode() != 200) return null;
             else return resp.getResponseAs(User.class);
         });
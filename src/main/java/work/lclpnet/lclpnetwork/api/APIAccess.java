@@ -7,20 +7,27 @@
 package work.lclpnet.lclpnetwork.api;
 
 import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import work.lclpnet.lclpnetwork.metrics.FlightRecorderEvents;
+import work.lclpnet.lclpnetwork.metrics.MetricsListener;
+import work.lclpnet.lclpnetwork.metrics.RequestPhase;
+import work.lclpnet.lclpnetwork.metrics.RequestRecord;
+import work.lclpnet.lclpnetwork.metrics.RequestTimings;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.ConnectException;
-import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
-import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Central API access class.
@@ -29,6 +36,12 @@ public class APIAccess {
 
     protected String host = "https://lclpnet.work";
     protected Executor customExecutor = null;
+    protected APITransport transport = new URLConnectionTransport();
+    protected volatile RequestCoalescer coalescer = null;
+    protected volatile ConditionalRequestCache conditionalCache = null;
+    protected volatile ConcurrencyLimiter concurrencyLimiter = null;
+    protected final List<MetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+    protected final AtomicInteger inFlight = new AtomicInteger();
 
     /**
      * Get the host to which API will be sent to.
@@ -72,6 +85,107 @@ public class APIAccess {
         this.customExecutor = customExecutor;
     }
 
+    /**
+     * Gets the transport of this instance, which is used to exchange requests with the server.
+     * @return The transport of this instance.
+     */
+    @Nonnull
+    public APITransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport of this instance, which is used to exchange requests with the server.
+     * By default, a {@link URLConnectionTransport} is used.
+     * @param transport The transport to use.
+     */
+    public void setTransport(APITransport transport) {
+        this.transport = Objects.requireNonNull(transport);
+    }
+
+    /**
+     * Gets the request coalescer of this instance.
+     * @return The request coalescer, or null if request coalescing is disabled.
+     */
+    @Nullable
+    public RequestCoalescer getRequestCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Sets whether concurrent, identical asynchronous requests should share a single in-flight request.
+     * Requests are identical, if their method, path and body are equal.
+     * Synchronous requests are never coalesced.
+     * @param coalesce True, if identical requests should be coalesced.
+     */
+    public void setRequestCoalescing(boolean coalesce) {
+        if (!coalesce) this.coalescer = null;
+        else if (this.coalescer == null) this.coalescer = new RequestCoalescer();
+    }
+
+    /**
+     * Gets the conditional request cache of this instance.
+     * @return The conditional request cache, or null if conditional requests are disabled.
+     */
+    @Nullable
+    public ConditionalRequestCache getConditionalRequestCache() {
+        return conditionalCache;
+    }
+
+    /**
+     * Sets the conditional request cache of this instance.
+     * If set, the ETag and Last-Modified validators of responses are remembered and sent with the next identical request.
+     * If the server answers with 304 Not Modified, the previous response, including its decoded object, is reused.
+     * @param conditionalCache The conditional request cache to use, or null to disable conditional requests.
+     */
+    public void setConditionalRequestCache(@Nullable ConditionalRequestCache conditionalCache) {
+        this.conditionalCache = conditionalCache;
+    }
+
+    /**
+     * Gets the concurrency limiter of this instance.
+     * @return The concurrency limiter, or null if the number of requests in flight is not limited.
+     */
+    @Nullable
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Sets the concurrency limiter of this instance.
+     * If set, requests beyond its maximum number of requests in flight wait in its bounded queue.
+     * Asynchronous requests are failed with a {@link RequestRejectedException} if the queue is full, synchronous requests throw it.
+     * Coalesced requests, which share an in-flight request, do not count towards the limit.
+     * @param concurrencyLimiter The concurrency limiter to use, or null to disable the limit.
+     */
+    public void setConcurrencyLimiter(@Nullable ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Adds a listener, which is notified about every request sent by this instance.
+     * @param listener The listener to add.
+     * @see work.lclpnet.lclpnetwork.metrics.RequestMetrics
+     */
+    public void addMetricsListener(MetricsListener listener) {
+        metricsListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Removes a listener added with {@link #addMetricsListener(MetricsListener)}.
+     * @param listener The listener to remove.
+     */
+    public void removeMetricsListener(MetricsListener listener) {
+        metricsListeners.remove(listener);
+    }
+
+    /**
+     * @return The number of requests which have been handed to the transport, but are not completed yet.
+     */
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
     /**
      * Send a HTTP GET API request.
      * @param path The request path for the request.
@@ -81,6 +195,18 @@ public class APIAccess {
         return sendAPIRequest(path, "GET", null);
     }
 
+    /**
+     * Send a HTTP GET API request, whose successful response body is decoded directly from the connection stream.
+     * The decoded object can be obtained with {@link APIResponse#getResponseAs(Class)}.
+     *
+     * @param path The request path for the request.
+     * @param responseType The type of the response body.
+     * @return A completable future that will contain the APIResponse.
+     */
+    public CompletableFuture<APIResponse> get(String path, Class<?> responseType) {
+        return sendAPIRequest(path, "GET", null, responseType);
+    }
+
     /**
      * Send a HTTP POST API request.
      *
@@ -92,6 +218,57 @@ public class APIAccess {
         return sendAPIRequest(path, "POST", body);
     }
 
+    /**
+     * Send a HTTP POST API request, whose successful response body is decoded directly from the connection stream.
+     * The decoded object can be obtained with {@link APIResponse#getResponseAs(Class)}.
+     *
+     * @param path The request path for the request. E.g. <code>"api/auth/user"</code> for <code>https://lclpnet.work/api/auth/user</code>.
+     * @param body Optional HTTP post body. Use <code>null</code> for no body.
+     * @param responseType The type of the response body.
+     * @return A completable future that will contain the APIResponse.
+     */
+    public CompletableFuture<APIResponse> post(String path, @Nullable JsonElement body, Class<?> responseType) {
+        return sendAPIRequest(path, "POST", body, responseType);
+    }
+
+    /**
+     * Send a HTTP POST API request, whose successful response body is decoded directly from the connection stream.
+     * The decoded object can be obtained with {@link APIResponse#getResponseAs(Class)}.
+     *
+     * @param path The request path for the request. E.g. <code>"api/auth/user"</code> for <code>https://lclpnet.work/api/auth/user</code>.
+     * @param body The HTTP post body.
+     * @param responseType The type of the response body.
+     * @return A completable future that will contain the APIResponse.
+     * @see work.lclpnet.lclpnetwork.util.JsonStreamBuilder
+     */
+    public CompletableFuture<APIResponse> post(String path, RequestBody body, Class<?> responseType) {
+        return post(path, body, responseType, null);
+    }
+
+    /**
+     * Send a HTTP POST API request, whose successful response body is decoded directly from the connection stream
+     * by a specific adapter. The decoded object can be obtained with {@link APIResponse#getResponseAs(Class)}.
+     *
+     * @param path The request path for the request. E.g. <code>"api/auth/user"</code> for <code>https://lclpnet.work/api/auth/user</code>.
+     * @param body The HTTP post body.
+     * @param responseType The type of the response body.
+     * @param responseAdapter The adapter which decodes the response body, or null to use the default Gson instance.
+     * @param <T> The type of the response body.
+     * @return A completable future that will contain the APIResponse.
+     */
+    public <T> CompletableFuture<APIResponse> post(String path, RequestBody body, Class<T> responseType, @Nullable TypeAdapter<T> responseAdapter) {
+        APIRequest request;
+        try {
+            request = createRequest(path, "POST").withBody(Objects.requireNonNull(body)).withResponseType(responseType, responseAdapter);
+        } catch (APIException e) {
+            CompletableFuture<APIResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        return sendAPIRequest(request);
+    }
+
     /**
      * Send an asynchronous API request.
      *
@@ -101,13 +278,80 @@ public class APIAccess {
      * @return A completable future that will contain the APIResponse.
      */
     public CompletableFuture<APIResponse> sendAPIRequest(String path, String requestMethod, @Nullable JsonElement body) {
-        Objects.requireNonNull(path);
-        Objects.requireNonNull(requestMethod);
+        return sendAPIRequest(path, requestMethod, body, null);
+    }
+
+    /**
+     * Send an asynchronous API request.
+     *
+     * @param path The request path for the request. E.g. <code>"api/auth/user"</code> for <code>https://lclpnet.work/api/auth/user</code>.
+     * @param requestMethod The HTTP request method.
+     * @param body Optional HTTP post body. Use <code>null</code> for no body.
+     * @param responseType Optional type, to which a successful response body should be decoded directly from the connection stream.
+     * @return A completable future that will contain the APIResponse.
+     */
+    public CompletableFuture<APIResponse> sendAPIRequest(String path, String requestMethod, @Nullable JsonElement body,
+                                                         @Nullable Class<?> responseType) {
+        APIRequest request;
+        try {
+            request = createRequest(path, requestMethod, body).withResponseType(responseType);
+        } catch (APIException e) {
+            CompletableFuture<APIResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
 
-        Supplier<APIResponse> supplier = () -> sendAPIRequestSync(path, requestMethod, body);
+        return sendAPIRequest(request);
+    }
+
+    /**
+     * Send an asynchronous API request.
+     *
+     * @param request The request to send.
+     * @return A completable future that will contain the APIResponse.
+     */
+    public CompletableFuture<APIResponse> sendAPIRequest(APIRequest request) {
+        Objects.requireNonNull(request);
+
+        RequestCoalescer coalescer = this.coalescer;
+        if (coalescer != null) return coalescer.coalesce(request, this::limitAsync);
+        else return limitAsync(request);
+    }
+
+    private CompletableFuture<APIResponse> limitAsync(APIRequest request) {
+        ConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if (limiter == null) return executeAsync(request);
+        else return limiter.submit(request, this::executeAsync);
+    }
+
+    protected CompletableFuture<APIResponse> executeAsync(APIRequest request) {
+        return executeAsync(request, this.conditionalCache);
+    }
+
+    private CompletableFuture<APIResponse> executeAsync(APIRequest request, @Nullable ConditionalRequestCache conditional) {
+        final Object event = FlightRecorderEvents.beginRequest();
+        final long start = requestStarted(request);
+        final APIRequest prepared = conditional == null ? request : conditional.prepare(request);
+
+        CompletableFuture<APIResponse> future;
+        try {
+            future = transport.executeAsync(prepared, this.customExecutor);
+        } catch (RuntimeException e) {
+            requestCompleted(request, start, event, null, e);
+            throw e;
+        }
+
+        future = future.whenComplete((response, error) -> requestCompleted(request, start, event, response, error));
 
-        if (this.customExecutor == null) return CompletableFuture.supplyAsync(supplier);
-        else return CompletableFuture.supplyAsync(supplier, this.customExecutor);
+        if (conditional == null) return future.thenApply(this::checkResponse);
+
+        return future.thenCompose(response -> {
+            APIResponse updated = conditional.update(request, response);
+            if (!isUnresolvedNotModified(request, prepared, updated))
+                return CompletableFuture.completedFuture(checkResponse(updated));
+
+            return executeAsync(request, null).thenApply(reissued -> conditional.update(request, reissued));
+        });
     }
 
     /**
@@ -119,39 +363,173 @@ public class APIAccess {
      * @return The APIResponse.
      */
     public APIResponse sendAPIRequestSync(String path, String requestMethod, @Nullable JsonElement body) throws APIException {
+        return sendAPIRequestSync(createRequest(path, requestMethod, body));
+    }
+
+    /**
+     * Send a synchronous API request.
+     *
+     * @param request The request to send.
+     * @return The APIResponse.
+     */
+    public APIResponse sendAPIRequestSync(APIRequest request) throws APIException {
+        Objects.requireNonNull(request);
+
+        ConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if (limiter == null) return executeSync(request);
+
+        limiter.acquire();
+        try {
+            return executeSync(request);
+        } finally {
+            limiter.release();
+        }
+    }
+
+    protected APIResponse executeSync(APIRequest request) throws APIException {
+        return executeSync(request, this.conditionalCache);
+    }
+
+    private APIResponse executeSync(APIRequest request, @Nullable ConditionalRequestCache conditional) throws APIException {
+        final Object event = FlightRecorderEvents.beginRequest();
+        final long start = requestStarted(request);
+        final APIRequest prepared = conditional == null ? request : conditional.prepare(request);
+
+        APIResponse response;
+        try {
+            response = transport.execute(prepared);
+        } catch (RuntimeException e) {
+            requestCompleted(request, start, event, null, e);
+            throw e;
+        }
+
+        requestCompleted(request, start, event, response, null);
+
+        if (conditional == null) return checkResponse(response);
+
+        APIResponse updated = conditional.update(request, response);
+        if (!isUnresolvedNotModified(request, prepared, updated)) return checkResponse(updated);
+
+        return conditional.update(request, executeSync(request, null));
+    }
+
+    /**
+     * Checks whether the server answered a conditional request with 304 Not Modified, but the stored response
+     * was evicted from the {@link ConditionalRequestCache} in the meantime.
+     * Such a request has to be sent again without validators, since a bare 304 response has no body.
+     */
+    private static boolean isUnresolvedNotModified(APIRequest request, APIRequest prepared, APIResponse updated) {
+        // validators set by the caller itself are left alone, the caller expects a 304 response then
+        return updated.getResponseCode() == 304 && prepared != request;
+    }
+
+    /**
+     * @return The start time of the request, in nanoseconds.
+     */
+    private long requestStarted(APIRequest request) {
+        inFlight.incrementAndGet();
+
+        for (MetricsListener listener : metricsListeners) {
+            try {
+                listener.requestStarted(request);
+            } catch (RuntimeException ignored) {}
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * @param event The flight recorder event of the request, or null if it is disabled.
+     */
+    private void requestCompleted(APIRequest request, long start, @Nullable Object event, @Nullable APIResponse response,
+                                  @Nullable Throwable error) {
+        final long duration = System.nanoTime() - start;
+        inFlight.decrementAndGet();
+
+        if (event == null && metricsListeners.isEmpty()) return;
+
+        if (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+
+        long requestBytes = response != null ? response.getRequestBytes() : -1L;
+        if (requestBytes < 0) {
+            RequestBody body = request.getRequestBody();
+            requestBytes = body == null ? 0L : body.getContentLength();
+        }
+
+        RequestTimings timings = response != null ? response.getTimings() : null;
+        if (timings == null) timings = new RequestTimings(start);
+        else timings.record(RequestPhase.QUEUE, timings.getStartNanos() - start);
+
+        RequestRecord record = new RequestRecord(request, response, response == null ? error : null, duration,
+                requestBytes, response == null ? -1L : response.getResponseBytes(), timings);
+
+        FlightRecorderEvents.commitRequest(event, record);
+
+        for (MetricsListener listener : metricsListeners) {
+            try {
+                listener.requestCompleted(record);
+            } catch (RuntimeException ignored) {}
+        }
+    }
+
+    /**
+     * Creates a new request for this instance's host, including the authorization header, if there is an access token.
+     *
+     * @param path The request path for the request. E.g. <code>"api/auth/user"</code> for <code>https://lclpnet.work/api/auth/user</code>.
+     * @param requestMethod The HTTP request method.
+     * @param body Optional HTTP post body. Use <code>null</code> for no body.
+     * @return The created request.
+     * @throws APIException If the resulting URL is malformed.
+     */
+    public APIRequest createRequest(String path, String requestMethod, @Nullable JsonElement body) throws APIException {
+        APIRequest request = createRequest(path, requestMethod);
+        return body == null ? request : request.withBody(RequestBody.of(body));
+    }
+
+    /**
+     * Creates a new request without body for this instance's host, including the authorization header, if there is an access token.
+     * A body can be added using {@link APIRequest#withBody(RequestBody)}.
+     *
+     * @param path The request path for the request. E.g. <code>"api/auth/user"</code> for <code>https://lclpnet.work/api/auth/user</code>.
+     * @param requestMethod The HTTP request method.
+     * @return The created request.
+     * @throws APIException If the resulting URL is malformed.
+     */
+    public APIRequest createRequest(String path, String requestMethod) throws APIException {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(requestMethod);
+
+        URL url;
         try {
-            URL url = new URL(String.format("%s/%s", this.getHost(), path));
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod(requestMethod);
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("X-Requested-With", "XMLHttpRequest");
-
-            String accessToken;
-            if ((accessToken = this.getAccessToken()) != null)
-                conn.setRequestProperty("Authorization", String.format("Bearer %s", accessToken));
-
-            if (body != null) {
-                conn.setDoOutput(true);
-                try (OutputStream out = conn.getOutputStream()) {
-                    out.write(body.toString().getBytes(StandardCharsets.UTF_8));
-                    out.flush();
-                }
-            }
-
-            APIResponse response = APIResponse.fromRequest(conn);
-
-            conn.disconnect();
-
-            if(response.isUnauthenticated()) throw APIException.UNAUTHENTICATED;
-            else if(response.hasInvalidScopes()) throw APIException.INVALID_SCOPES;
-
-            return response;
-        } catch (ConnectException e) {
-            throw APIException.NO_CONNECTION;
-        } catch (IOException e) {
+            url = new URL(String.format("%s/%s", this.getHost(), path));
+        } catch (MalformedURLException e) {
             throw new APIException(e);
         }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", "application/json");
+        headers.put("Content-Type", "application/json");
+        headers.put("X-Requested-With", "XMLHttpRequest");
+
+        String accessToken;
+        if ((accessToken = this.getAccessToken()) != null)
+            headers.put("Authorization", String.format("Bearer %s", accessToken));
+
+        return new APIRequest(path, url, requestMethod, headers, null);
+    }
+
+    /**
+     * Checks a response for authentication errors.
+     *
+     * @param response The response received by the transport.
+     * @return The same response.
+     * @throws APIException If the response indicates an authentication or scope error.
+     */
+    protected APIResponse checkResponse(APIResponse response) throws APIException {
+        if(response.isUnauthenticated()) throw APIException.UNAUTHENTICATED;
+        else if(response.hasInvalidScopes()) throw APIException.INVALID_SCOPES;
+
+        return response;
     }
 
     /**
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable description of a single API request, as handed to an {@link APITransport}.
+ * Instances are usually created by {@link APIAccess#createRequest(String, String, JsonElement)}.
+ */
+public class APIRequest {
+
+    private final String path;
+    private final URL url;
+    private final String method;
+    private final Map<String, String> headers;
+    private final RequestBody body;
+    private final Class<?> responseType;
+    private final TypeAdapter<?> responseAdapter;
+    private Key key = null;
+
+    public APIRequest(String path, URL url, String method, Map<String, String> headers, @Nullable JsonElement body) {
+        this(path, url, method, headers, body, null);
+    }
+
+    public APIRequest(String path, URL url, String method, Map<String, String> headers, @Nullable JsonElement body,
+                      @Nullable Class<?> responseType) {
+        this.path = Objects.requireNonNull(path);
+        this.url = Objects.requireNonNull(url);
+        this.method = Objects.requireNonNull(method);
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.body = body == null ? null : RequestBody.of(body);
+        this.responseType = responseType;
+        this.responseAdapter = null;
+    }
+
+    private APIRequest(APIRequest request, Map<String, String> headers, @Nullable RequestBody body, @Nullable Class<?> responseType,
+                       @Nullable TypeAdapter<?> responseAdapter) {
+        this(request, headers, body, responseType, responseAdapter, null);
+    }
+
+    private APIRequest(APIRequest request, Map<String, String> headers, @Nullable RequestBody body, @Nullable Class<?> responseType,
+                       @Nullable TypeAdapter<?> responseAdapter, @Nullable Key key) {
+        this.path = request.path;
+        this.url = request.url;
+        this.method = request.method;
+        this.headers = headers;
+        this.body = body;
+        this.responseType = responseType;
+        this.responseAdapter = responseAdapter;
+        this.key = key;
+    }
+
+    /**
+     * @return The request path, relative to the host. E.g. <code>"api/auth/user"</code>.
+     */
+    @Nonnull
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The absolute URL of the request.
+     */
+    @Nonnull
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * @return The HTTP request method.
+     */
+    @Nonnull
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return An unmodifiable map of the request headers.
+     */
+    @Nonnull
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return The request body as JSON tree, or null if the request has no body.
+     * @see #getRequestBody()
+     */
+    @Nullable
+    public JsonElement getBody() {
+        return body == null ? null : body.toJsonTree();
+    }
+
+    /**
+     * @return The request body, or null if the request has no body.
+     */
+    @Nullable
+    public RequestBody getRequestBody() {
+        return body;
+    }
+
+    /**
+     * Get the type to which a successful response body should be decoded.
+     * Transports may decode the body directly from the connection stream, without buffering it as a string.
+     *
+     * @return The type of the response body, or null if the response body should be kept as a string.
+     */
+    @Nullable
+    public Class<?> getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * Get the adapter, which should decode a successful response body instead of the default Gson instance.
+     *
+     * @return The adapter for the response type, or null if the default Gson instance should be used.
+     * @see #withResponseType(Class, TypeAdapter)
+     */
+    @Nullable
+    public TypeAdapter<?> getResponseAdapter() {
+        return responseAdapter;
+    }
+
+    /**
+     * Get a key which identifies this request, consisting of the method, path, body, response type and response adapter.
+     * Requests with equal keys are expected to have equal responses, decoded in the same way.
+     * The key is computed only once per request.
+     *
+     * @return The key of this request.
+     */
+    @Nonnull
+    public Key getKey() {
+        Key key = this.key;
+        if (key == null) this.key = key = new Key(this);  // racy, but every thread computes an equal key
+        return key;
+    }
+
+    /**
+     * Creates a copy of this request with an additional header.
+     *
+     * @param name The name of the header.
+     * @param value The value of the header.
+     * @return A new request with the header.
+     */
+    public APIRequest withHeader(String name, String value) {
+        Map<String, String> headers = new LinkedHashMap<>(this.headers);
+        headers.put(Objects.requireNonNull(name), Objects.requireNonNull(value));
+        // headers are not part of the key
+        return new APIRequest(this, Collections.unmodifiableMap(headers), body, responseType, responseAdapter, key);
+    }
+
+    /**
+     * Creates a copy of this request with another body.
+     *
+     * @param body The new request body, or null for no body.
+     * @return A new request with the body.
+     */
+    public APIRequest withBody(@Nullable RequestBody body) {
+        return new APIRequest(this, headers, body, responseType, responseAdapter);
+    }
+
+    /**
+     * Creates a copy of this request with a response type.
+     *
+     * @param responseType The type to which a successful response body should be decoded, or null to keep it as a string.
+     * @return A new request with the response type.
+     * @see #getResponseType()
+     */
+    public APIRequest withResponseType(@Nullable Class<?> responseType) {
+        return new APIRequest(this, headers, body, responseType, null);
+    }
+
+    /**
+     * Creates a copy of this request with a response type, which is decoded by a specific adapter.
+     *
+     * @param responseType The type to which a successful response body should be decoded.
+     * @param responseAdapter The adapter which decodes the response body, or null to use the default Gson instance.
+     * @param <T> The response type.
+     * @return A new request with the response type.
+     * @see #getResponseType()
+     */
+    public <T> APIRequest withResponseType(Class<T> responseType, @Nullable TypeAdapter<T> responseAdapter) {
+        return new APIRequest(this, headers, body, Objects.requireNonNull(responseType), responseAdapter);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("APIRequest{method='%s', url='%s'}", method, url);
+    }
+
+    /**
+     * The key of an {@link APIRequest}.
+     * Response adapters are compared by identity.
+     *
+     * @see #getKey()
+     */
+    public static final class Key {
+
+        private final String method;
+        private final String path;
+        private final String body;
+        private final Class<?> responseType;
+        private final TypeAdapter<?> responseAdapter;
+        private final int hash;
+
+        private Key(APIRequest request) {
+            this.method = request.method;
+            this.path = request.path;
+            this.body = request.body == null ? "" : request.body.toString();
+            this.responseType = request.responseType;
+            this.responseAdapter = request.responseAdapter;
+
+            int hash = method.hashCode();
+            hash = 31 * hash + path.hashCode();
+            hash = 31 * hash + body.hashCode();
+            hash = 31 * hash + Objects.hashCode(responseType);
+            hash = 31 * hash + System.identityHashCode(responseAdapter);
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hash == key.hash && responseType == key.responseType && responseAdapter == key.responseAdapter
+                    && method.equals(key.method) && path.equals(key.path) && body.equals(key.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            String type = responseType == null ? "" : ' ' + responseType.getName();
+            return method + ' ' + path + ' ' + body + type;
+        }
+    }
+}
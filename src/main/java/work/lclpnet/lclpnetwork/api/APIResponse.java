@@ -6,14 +6,22 @@
 
 package work.lclpnet.lclpnetwork.api;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import work.lclpnet.lclpnetwork.metrics.FlightRecorderEvents;
+import work.lclpnet.lclpnetwork.metrics.RequestPhase;
+import work.lclpnet.lclpnetwork.metrics.RequestTimings;
 import work.lclpnet.lclpnetwork.model.JsonSerializable;
+import work.lclpnet.lclpnetwork.util.CountingInputStream;
+import work.lclpnet.lclpnetwork.util.GsonAccess;
 import work.lclpnet.lclpnetwork.util.Utils;
 
+import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -21,15 +29,32 @@ import java.util.List;
 
 public class APIResponse {
 
+    /**
+     * Marker for bodies which are missing or could not be parsed, so that they are not parsed again.
+     */
+    private static final JsonElement INVALID = new JsonPrimitive("invalid");
+
     private final int responseCode;
     private final String rawResponse, rawError;
-    private APIError validationViolations = null;
-    private String jsonStatusMessage = null;
+    private final String etag, lastModified;
+    private volatile APIError validationViolations = null;
+    private volatile String jsonStatusMessage = null;
+    private volatile Object decodedResponse = null;
+    private volatile JsonSyntaxException malformedResponse = null;
+    private volatile JsonElement responseTree = null, errorTree = null;
+    long requestBytes = -1L, responseBytes = -1L;
+    RequestTimings timings = null;
 
     public APIResponse(int responseCode, String rawResponse, String rawError) {
+        this(responseCode, rawResponse, rawError, null, null);
+    }
+
+    public APIResponse(int responseCode, String rawResponse, String rawError, @Nullable String etag, @Nullable String lastModified) {
         this.responseCode = responseCode;
         this.rawResponse = rawResponse;
         this.rawError = rawError;
+        this.etag = etag;
+        this.lastModified = lastModified;
     }
 
     public int getResponseCode() {
@@ -44,42 +69,314 @@ public class APIResponse {
         return rawError;
     }
 
+    /**
+     * @return The value of the ETag response header, or null if there was none.
+     */
+    @Nullable
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * @return The value of the Last-Modified response header, or null if there was none.
+     */
+    @Nullable
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return The number of request body bytes sent, or -1 if the transport did not record it.
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return The number of response body bytes received over the wire, or -1 if the transport did not record it.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return The phase timings of the request, or null if the transport did not record them.
+     */
+    @Nullable
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * @return True, if the response contains a validator that can be used for conditional requests.
+     */
+    public boolean hasValidator() {
+        return etag != null || lastModified != null;
+    }
+
     public static APIResponse fromRequest(HttpURLConnection conn) throws IOException {
+        return fromRequest(conn, null);
+    }
+
+    /**
+     * Reads the response of a connection.
+     * Compressed response bodies are decompressed according to their Content-Encoding header.
+     *
+     * @param conn The connection to read from.
+     * @param stats Optional stats to record the transferred bytes to.
+     * @return The response of the connection.
+     * @throws IOException If the response status could not be read.
+     */
+    public static APIResponse fromRequest(HttpURLConnection conn, @Nullable TransferStats stats) throws IOException {
+        return fromRequest(conn, stats, null);
+    }
+
+    /**
+     * Reads the response of a connection.
+     * Compressed response bodies are decompressed according to their Content-Encoding header.
+     * <p>
+     * If a response type is given, a successful (2xx) response body is decoded directly from the connection stream,
+     * without buffering it as a string. The decoded object is then returned by {@link #getResponseAs(Class)},
+     * while {@link #getRawResponse()} will return null. An empty body is decoded as null.
+     * If the body is not valid JSON, the response is still returned, but {@link #getResponseAs(Class)} will throw
+     * a {@link JsonSyntaxException}, just like it does for a body that was kept as string.
+     *
+     * @param conn The connection to read from.
+     * @param stats Optional stats to record the transferred bytes to.
+     * @param responseType Optional type, to which successful response bodies should be decoded.
+     * @return The response of the connection.
+     * @throws IOException If the response status or a body to decode could not be read.
+     */
+    public static APIResponse fromRequest(HttpURLConnection conn, @Nullable TransferStats stats, @Nullable Class<?> responseType) throws IOException {
+        return fromRequest(conn, stats, responseType, null);
+    }
+
+    /**
+     * Reads the response of a connection, like {@link #fromRequest(HttpURLConnection, TransferStats, Class)},
+     * but decodes successful response bodies with a specific adapter.
+     *
+     * @param conn The connection to read from.
+     * @param stats Optional stats to record the transferred bytes to.
+     * @param responseType Optional type, to which successful response bodies should be decoded.
+     * @param responseAdapter Optional adapter which decodes the response type, instead of the default Gson instance.
+     * @return The response of the connection.
+     * @throws IOException If the response status or a body to decode could not be read.
+     */
+    public static APIResponse fromRequest(HttpURLConnection conn, @Nullable TransferStats stats, @Nullable Class<?> responseType,
+                                          @Nullable TypeAdapter<?> responseAdapter) throws IOException {
+        return fromRequest(conn, stats, responseType, responseAdapter, null);
+    }
+
+    /**
+     * Reads the response of a connection, like {@link #fromRequest(HttpURLConnection, TransferStats, Class, TypeAdapter)},
+     * while recording the time spent in the {@link RequestPhase#READ} and {@link RequestPhase#DECODE} phases.
+     * The time spent waiting for the response status is recorded as {@link RequestPhase#WAIT}, unless it was read before.
+     *
+     * @param conn The connection to read from.
+     * @param stats Optional stats to record the transferred bytes to.
+     * @param responseType Optional type, to which successful response bodies should be decoded.
+     * @param responseAdapter Optional adapter which decodes the response type, instead of the default Gson instance.
+     * @param timings Optional timings to record the phases to. They are attached to the response.
+     * @return The response of the connection.
+     * @throws IOException If the response status or a body to decode could not be read.
+     */
+    public static APIResponse fromRequest(HttpURLConnection conn, @Nullable TransferStats stats, @Nullable Class<?> responseType,
+                                          @Nullable TypeAdapter<?> responseAdapter, @Nullable RequestTimings timings) throws IOException {
+        return fromRequest(conn, stats, responseType, responseAdapter, timings, false);
+    }
+
+    /**
+     * @param disconnect True, if the connection should not be reused. It is then disconnected after the body was read,
+     *                   but before the stream is closed, since closing it would return the connection to the keep-alive cache.
+     */
+    static APIResponse fromRequest(HttpURLConnection conn, @Nullable TransferStats stats, @Nullable Class<?> responseType,
+                                   @Nullable TypeAdapter<?> responseAdapter, @Nullable RequestTimings timings, boolean disconnect) throws IOException {
+        long start = timings != null ? System.nanoTime() : 0L;
         int status = conn.getResponseCode();
+        if (timings != null) timings.record(RequestPhase.WAIT, System.nanoTime() - start);
+
+        String encoding = conn.getContentEncoding();
+        String etag = conn.getHeaderField("ETag"), lastModified = conn.getHeaderField("Last-Modified");
+        long[] received = new long[1];
+
+        if (responseType != null && status / 100 == 2) {
+            Object decoded;
+            try (InputStream in = conn.getInputStream()) {
+                decoded = readBody(in, encoding, stats, received, timings, true, body -> decode(body, responseType, responseAdapter));
+                if (disconnect) conn.disconnect();
+            }
+
+            APIResponse response = decoded(status, etag, lastModified, decoded);
+            response.responseBytes = received[0];
+            response.timings = timings;
+            return response;
+        }
 
         String response;
         try (InputStream in = conn.getInputStream()) {
-            response = Utils.toString(in, StandardCharsets.UTF_8);
+            response = readBody(in, encoding, stats, received, timings, false, body -> Utils.toString(body, StandardCharsets.UTF_8));
+            if (disconnect) conn.disconnect();
         } catch (IOException | NullPointerException e) {
             response = null;
         }
 
         String error;
         try (InputStream inErr = conn.getErrorStream()) {
-            error = Utils.toString(inErr, StandardCharsets.UTF_8);
+            error = readBody(inErr, encoding, stats, received, timings, false, body -> Utils.toString(body, StandardCharsets.UTF_8));
+            if (disconnect) conn.disconnect();
         } catch (IOException | NullPointerException e) {
             error = null;
         }
 
-        return new APIResponse(status, response, error);
+        APIResponse apiResponse = new APIResponse(status, response, error, etag, lastModified);
+        apiResponse.responseBytes = received[0];
+        apiResponse.timings = timings;
+        return apiResponse;
     }
 
-    public boolean hasJsonStatusMessage() {
-        return getJsonStatusMessage() != null;
+    /**
+     * Reads a response from its status, headers and body, for transports which do not use a {@link HttpURLConnection}.
+     * Bodies of error (4xx and 5xx) responses become the raw error, every other body becomes the raw response,
+     * unless it is decoded like in {@link #fromRequest(HttpURLConnection, TransferStats, Class, TypeAdapter, RequestTimings)}.
+     *
+     * @param status The HTTP status code.
+     * @param body The response body, as received over the wire.
+     * @param encoding The value of the Content-Encoding header, or null.
+     * @param etag The value of the ETag header, or null.
+     * @param lastModified The value of the Last-Modified header, or null.
+     * @param stats Optional stats to record the transferred bytes to.
+     * @param responseType Optional type, to which successful response bodies should be decoded.
+     * @param responseAdapter Optional adapter which decodes the response type, instead of the default Gson instance.
+     * @param timings Optional timings to record the phases to. They are attached to the response.
+     * @return The response.
+     * @throws IOException If the body could not be read.
+     */
+    static APIResponse fromBody(int status, InputStream body, @Nullable String encoding, @Nullable String etag, @Nullable String lastModified,
+                                @Nullable TransferStats stats, @Nullable Class<?> responseType, @Nullable TypeAdapter<?> responseAdapter,
+                                @Nullable RequestTimings timings) throws IOException {
+        long[] received = new long[1];
+        APIResponse response;
+
+        if (responseType != null && status / 100 == 2) {
+            Object decoded = readBody(body, encoding, stats, received, timings, true, in -> decode(in, responseType, responseAdapter));
+            response = decoded(status, etag, lastModified, decoded);
+        } else {
+            String text = readBody(body, encoding, stats, received, timings, false, in -> Utils.toString(in, StandardCharsets.UTF_8));
+            if (status >= 400) response = new APIResponse(status, null, text, etag, lastModified);
+            else response = new APIResponse(status, text, null, etag, lastModified);
+        }
+
+        response.responseBytes = received[0];
+        response.timings = timings;
+        return response;
     }
 
-    public String getJsonStatusMessage() {
-        if (jsonStatusMessage != null) return jsonStatusMessage;
+    /**
+     * @param decoding True, if the reader decodes a model. Otherwise, the whole time is recorded as {@link RequestPhase#READ}.
+     */
+    private static <T> T readBody(InputStream in, @Nullable String encoding, @Nullable TransferStats stats, long[] received,
+                                  @Nullable RequestTimings timings, boolean decoding, BodyReader<T> reader) throws IOException {
+        final long start = timings != null ? System.nanoTime() : 0L;
+        final CountingInputStream wire = new CountingInputStream(in, timings != null && decoding);
+        final CountingInputStream decoded = stats != null ? new CountingInputStream(Utils.decompress(wire, encoding)) : null;
 
-        String s = rawError != null ? rawError : (rawResponse);
-        if (s == null) return null;
+        try {
+            return reader.read(decoded != null ? decoded : Utils.decompress(wire, encoding));
+        } finally {
+            received[0] += wire.getCount();
+            if (stats != null) stats.record(wire.getCount(), decoded.getCount());
+
+            if (timings != null) {
+                long total = System.nanoTime() - start;
+                if (!decoding) timings.record(RequestPhase.READ, total);
+                else {
+                    // the model is decoded while the body is read, so everything but waiting for the stream is decoding
+                    timings.record(RequestPhase.READ, wire.getReadNanos());
+                    timings.record(RequestPhase.DECODE, total - wire.getReadNanos());
+                }
+            }
+        }
+    }
+
+    private static APIResponse decoded(int status, @Nullable String etag, @Nullable String lastModified, @Nullable Object decoded) {
+        APIResponse response = new APIResponse(status, null, null, etag, lastModified);
+        if (decoded instanceof MalformedBody) response.malformedResponse = ((MalformedBody) decoded).error;
+        else response.decodedResponse = decoded;
+        return response;
+    }
 
-        JsonObject json;
+    /**
+     * @return The decoded body, null for an empty body, or a {@link MalformedBody} if the body is not valid JSON.
+     */
+    private static Object decode(InputStream in, Class<?> type, @Nullable TypeAdapter<?> adapter) throws IOException {
+        final Object event = FlightRecorderEvents.beginDecode();
+        Object decoded;
         try {
-            json = JsonSerializable.parse(s, JsonObject.class);
+            decoded = read(new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8)), type, adapter);
+        } catch (JsonIOException e) {
+            throw new IOException(e);
         } catch (JsonSyntaxException e) {
-            return null;
+            // Gson reports every I/O error as syntax error, but only actual syntax errors are left to getResponseAs()
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException && !(cause instanceof MalformedJsonException) && !(cause instanceof EOFException))
+                throw (IOException) cause;
+
+            decoded = new MalformedBody(e);
+        }
+
+        FlightRecorderEvents.commitDecode(event, type, true);
+
+        Utils.drain(in);  // the body has to be consumed entirely, so that the connection can be reused
+
+        return decoded;
+    }
+
+    /**
+     * Reads a value like {@link Gson#fromJson(JsonReader, java.lang.reflect.Type)}, optionally with a specific adapter.
+     * Both ways result in null for an empty document and throw a {@link JsonSyntaxException} for invalid JSON.
+     */
+    private static Object read(JsonReader reader, Class<?> type, @Nullable TypeAdapter<?> adapter) throws IOException {
+        if (adapter == null) return GsonAccess.getGson().fromJson(reader, type);
+
+        reader.setLenient(true);
+        boolean empty = true;
+        try {
+            reader.peek();
+            empty = false;
+            return adapter.read(reader);
+        } catch (EOFException e) {
+            if (empty) return null;
+            throw new JsonSyntaxException(e);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * A streamed body, which is not valid JSON.
+     */
+    private static final class MalformedBody {
+
+        private final JsonSyntaxException error;
+
+        MalformedBody(JsonSyntaxException error) {
+            this.error = error;
         }
+    }
+
+    private interface BodyReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    public boolean hasJsonStatusMessage() {
+        return getJsonStatusMessage() != null;
+    }
+
+    public String getJsonStatusMessage() {
+        if (jsonStatusMessage != null) return jsonStatusMessage;
+
+        JsonObject json = asObject(rawError != null ? getErrorTree() : getResponseTree());
+        if (json == null) return null;
 
         JsonElement elem = json.get("message");
         if (elem == null) return null;
@@ -87,7 +384,7 @@ public class APIResponse {
         try {
             jsonStatusMessage = elem.getAsString();
             return jsonStatusMessage;
-        } catch (ClassCastException e) {
+        } catch (ClassCastException | IllegalStateException e) {
             return null;
         }
     }
@@ -99,26 +396,23 @@ public class APIResponse {
     public boolean hasInvalidScopes() {
         if(responseCode != 403) return false;
 
-        JsonObject obj = this.getErrorAs(JsonObject.class);
+        JsonObject obj = asObject(getErrorTree());
+        if (obj == null) return false;
+
         JsonElement elem = obj.get("message");
-        return "Invalid scope(s) provided.".equals(elem.getAsString());
+        return elem != null && elem.isJsonPrimitive() && "Invalid scope(s) provided.".equals(elem.getAsString());
     }
 
     public boolean hasValidationViolations() {
-        return getValidationViolations() != null && !validationViolations.getViolations().isEmpty();
+        APIError violations = getValidationViolations();
+        return violations != null && !violations.getViolations().isEmpty();
     }
 
     public APIError getValidationViolations() {
         if (validationViolations != null) return validationViolations;
 
-        if (rawError == null) return null;
-
-        JsonObject json;
-        try {
-            json = JsonSerializable.parse(rawError, JsonObject.class);
-        } catch (JsonSyntaxException e) {
-            return null;
-        }
+        JsonObject json = asObject(getErrorTree());
+        if (json == null) return null;
 
         JsonElement elem = json.get("errors");
         if (elem == null || !elem.isJsonObject()) return null;
@@ -129,12 +423,10 @@ public class APIResponse {
         obj.entrySet().forEach(e -> {
             List<String> errors = new ArrayList<>();
             if (e.getValue().isJsonArray()) {
-                List<JsonElement> elements = new ArrayList<>();
-                e.getValue().getAsJsonArray().forEach(elements::add);
-                elements.forEach(eElem -> {
+                e.getValue().getAsJsonArray().forEach(eElem -> {
                     try {
                         errors.add(eElem.getAsString());
-                    } catch (ClassCastException ignored) {
+                    } catch (ClassCastException | IllegalStateException ignored) {
                     }
                 });
             }
@@ -145,18 +437,108 @@ public class APIResponse {
     }
 
     public <T> T getExtra(Class<T> clazz) {
-        JsonObject obj = JsonSerializable.parse(rawResponse, JsonObject.class);
+        JsonObject obj = asObject(getResponseTree());
+        if (obj == null) return null;
+
         JsonElement elem = obj.get("extra");
         if (elem == null || elem.isJsonNull()) return null;
         else return JsonSerializable.cast(elem.getAsJsonObject(), clazz);
     }
 
+    /**
+     * Decodes the response body.
+     * The decoded object is remembered, so that repeated calls with the same type return the same instance.
+     * This is also the case for responses that are reused, because the server answered a conditional request
+     * with 304 Not Modified.
+     *
+     * @param clazz The type to decode.
+     * @param <T> The type to decode.
+     * @return The decoded response body.
+     * @throws JsonSyntaxException If the response body is not valid JSON.
+     */
     public <T> T getResponseAs(Class<T> clazz) {
-        return JsonSerializable.parse(rawResponse, clazz);
+        Object decoded = decodedResponse;
+        if (decoded != null && decoded.getClass() == clazz) return clazz.cast(decoded);
+
+        JsonSyntaxException malformed = malformedResponse;
+        if (malformed != null) throw new JsonSyntaxException(malformed.getMessage(), malformed);
+
+        final Object event = FlightRecorderEvents.beginDecode();
+
+        // the body was decoded from the stream, so there is no raw response to parse
+        if (rawResponse == null && decoded != null) {
+            T converted = JsonSerializable.cast(JsonSerializable.toJson(decoded), clazz);
+            FlightRecorderEvents.commitDecode(event, clazz, false);
+            return converted;
+        }
+
+        T parsed = parse(rawResponse, responseTree, clazz);
+        FlightRecorderEvents.commitDecode(event, clazz, false);
+        decodedResponse = parsed;
+        return parsed;
     }
 
     public <T> T getErrorAs(Class<T> clazz) {
-        return JsonSerializable.parse(rawError, clazz);
+        return parse(rawError, errorTree, clazz);
+    }
+
+    /**
+     * Gets the parsed JSON tree of the response body.
+     * The body is parsed at most once, subsequent calls return the same tree.
+     *
+     * @return The JSON tree of the response body, or null if there is no response body or it is not valid JSON.
+     */
+    @Nullable
+    public JsonElement getResponseTree() {
+        JsonElement tree = responseTree;
+        if (tree == null) {
+            Object decoded = decodedResponse;
+            if (rawResponse == null && decoded instanceof JsonElement) tree = (JsonElement) decoded;
+            else if (rawResponse == null && decoded != null) tree = JsonSerializable.toJson(decoded);
+            else tree = parseTree(rawResponse);
+
+            responseTree = tree;
+        }
+
+        return tree == INVALID ? null : tree;
+    }
+
+    /**
+     * Gets the parsed JSON tree of the error body.
+     * The body is parsed at most once, subsequent calls return the same tree.
+     *
+     * @return The JSON tree of the error body, or null if there is no error body or it is not valid JSON.
+     */
+    @Nullable
+    public JsonElement getErrorTree() {
+        JsonElement tree = errorTree;
+        if (tree == null) errorTree = tree = parseTree(rawError);
+
+        return tree == INVALID ? null : tree;
+    }
+
+    private static <T> T parse(String raw, @Nullable JsonElement tree, Class<T> clazz) {
+        if (tree == null || tree == INVALID) return JsonSerializable.parse(raw, clazz);
+
+        // reuse the already parsed tree
+        if (clazz.isInstance(tree)) return clazz.cast(tree);
+        else return JsonSerializable.cast(tree, clazz);
+    }
+
+    private static JsonElement parseTree(@Nullable String raw) {
+        if (raw == null) return INVALID;
+
+        try {
+            JsonElement tree = JsonParser.parseString(raw);
+            return tree == null ? INVALID : tree;
+        } catch (JsonParseException e) {
+            return INVALID;
+        }
+    }
+
+    @Nullable
+    private static JsonObject asObject(@Nullable JsonElement elem) {
+        return elem != null && elem.isJsonObject() ? elem.getAsJsonObject() : null;
     }
 
     @Override
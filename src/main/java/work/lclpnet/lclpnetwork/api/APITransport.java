@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Transfers {@link APIRequest}s to the server and reads their {@link APIResponse}s.
+ * The transport of an {@link APIAccess} can be exchanged with {@link APIAccess#setTransport(APITransport)}.
+ * <p>
+ * Blocking implementations only need to implement {@link #execute(APIRequest)}.
+ * Implementations backed by a non-blocking HTTP client (e.g. <code>java.net.http.HttpClient</code> on Java 11+)
+ * should override {@link #executeAsync(APIRequest, Executor)} as well, so that no thread is occupied while
+ * waiting for the server.
+ * <p>
+ * On Java 11 and later, the library provides such a transport: <code>work.lclpnet.lclpnetwork.api.HttpClientTransport</code>.
+ */
+public interface APITransport {
+
+    /**
+     * Send a request and wait for the response.
+     *
+     * @param request The request to send.
+     * @return The response of the server.
+     * @throws APIException If the request could not be sent or the response could not be read.
+     */
+    APIResponse execute(APIRequest request) throws APIException;
+
+    /**
+     * Send a request asynchronously.
+     * The default implementation runs {@link #execute(APIRequest)} on the given executor.
+     *
+     * @param request The request to send.
+     * @param executor The executor to run blocking work on, or null to use the {@link ForkJoinPool#commonPool()}.
+     * @return A completable future that will contain the response of the server.
+     */
+    default CompletableFuture<APIResponse> executeAsync(APIRequest request, @Nullable Executor executor) {
+        if (executor == null) return CompletableFuture.supplyAsync(() -> execute(request));
+        else return CompletableFuture.supplyAsync(() -> execute(request), executor);
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import work.lclpnet.lclpnetwork.metrics.Histogram;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounds the number of requests an {@link APIAccess} has in flight at the same time.
+ * Requests beyond the limit wait in a bounded FIFO queue and are sent as soon as an in-flight request completes.
+ * Waiting asynchronous requests do not occupy an executor thread.
+ * If the queue is full, requests are rejected immediately with a {@link RequestRejectedException},
+ * so that the load on both the client and the server stays bounded, e.g. during mass reconnects.
+ */
+public class ConcurrencyLimiter {
+
+    private final int maxInFlight, maxQueued;
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private int inFlight = 0, maxQueueDepth = 0;
+    private final AtomicLong queuedRequests = new AtomicLong(), rejectedRequests = new AtomicLong();
+    private final Histogram queueWait = new Histogram();
+
+    /**
+     * @param maxInFlight The maximum number of requests in flight, must be positive.
+     * @param maxQueued The maximum number of requests waiting for another request to complete, or 0 to reject them immediately.
+     */
+    public ConcurrencyLimiter(int maxInFlight, int maxQueued) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive.");
+        if (maxQueued < 0) throw new IllegalArgumentException("maxQueued must not be negative.");
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Send a request, once fewer than the maximum number of requests are in flight.
+     * If the returned future is cancelled while the request is waiting, the request is removed from the queue and never sent.
+     *
+     * @param request The request to send.
+     * @param sender A function that actually sends a request.
+     * @return A completable future that will contain the APIResponse, or fail with a {@link RequestRejectedException} if the queue is full.
+     */
+    public CompletableFuture<APIResponse> submit(APIRequest request, Function<APIRequest, CompletableFuture<APIResponse>> sender) {
+        final AsyncWaiter waiter = new AsyncWaiter(request, sender);
+
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                if (!enqueue(waiter)) {
+                    CompletableFuture<APIResponse> rejected = new CompletableFuture<>();
+                    rejected.completeExceptionally(new RequestRejectedException(maxInFlight, maxQueued));
+                    return rejected;
+                }
+                waiter.future.whenComplete((response, error) -> {
+                    if (error != null) dequeue(waiter);  // e.g. cancelled, it must not keep its place in the queue
+                });
+                return waiter.future;
+            }
+            inFlight++;
+        }
+
+        if (waiter.dispatch()) release();
+        return waiter.future;
+    }
+
+    /**
+     * Waits until fewer than the maximum number of requests are in flight and takes a slot.
+     * Every successful call must be followed by {@link #release()}.
+     *
+     * @throws RequestRejectedException If the queue is full.
+     * @throws APIException If the thread was interrupted while waiting.
+     */
+    void acquire() throws APIException {
+        final SyncWaiter waiter = new SyncWaiter();
+
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+                return;
+            }
+            if (!enqueue(waiter)) throw new RequestRejectedException(maxInFlight, maxQueued);
+        }
+
+        try {
+            waiter.await();
+        } catch (InterruptedException e) {
+            boolean removed;
+            synchronized (this) {
+                removed = queue.remove(waiter);
+            }
+            if (!removed) release();  // the slot was handed over concurrently
+
+            Thread.currentThread().interrupt();
+            throw new APIException(e);
+        }
+    }
+
+    /**
+     * Frees a slot taken by {@link #acquire()} and hands it to the next waiting request, if there is one.
+     */
+    void release() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = queue.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+
+            queueWait.record(System.nanoTime() - next.queuedNanos);
+
+            // the slot is handed over; requests that complete immediately free it again, without recursion
+            if (!next.dispatch()) return;
+        }
+    }
+
+    private synchronized void dequeue(Waiter waiter) {
+        queue.remove(waiter);
+    }
+
+    private boolean enqueue(Waiter waiter) {
+        if (queue.size() >= maxQueued) {
+            rejectedRequests.incrementAndGet();
+            return false;
+        }
+
+        queue.add(waiter);
+        queuedRequests.incrementAndGet();
+        if (queue.size() > maxQueueDepth) maxQueueDepth = queue.size();
+        return true;
+    }
+
+    /**
+     * @return The maximum number of requests in flight.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return The maximum number of waiting requests.
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * @return The number of requests currently in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return The number of requests currently waiting for another request to complete.
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return The highest number of requests that were waiting at the same time.
+     */
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return The number of requests that had to wait for another request to complete.
+     */
+    public long getQueuedRequests() {
+        return queuedRequests.get();
+    }
+
+    /**
+     * @return The number of requests that were rejected, because the queue was full.
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    /**
+     * @return The histogram of the time requests waited in the queue, in nanoseconds.
+     */
+    @Nonnull
+    public Histogram getQueueWait() {
+        return queueWait;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConcurrencyLimiter{inFlight=%d/%d, queueDepth=%d/%d, maxQueueDepth=%d, queued=%d, rejected=%d, p99QueueWait=%dus}",
+                getInFlight(), maxInFlight, getQueueDepth(), maxQueued, getMaxQueueDepth(), getQueuedRequests(),
+                getRejectedRequests(), queueWait.getValueAtPercentile(99) / 1000);
+    }
+
+    private abstract static class Waiter {
+
+        final long queuedNanos = System.nanoTime();
+
+        /**
+         * Uses the slot handed over to this waiter.
+         *
+         * @return True, if the slot is already free again.
+         */
+        abstract boolean dispatch();
+    }
+
+    private class AsyncWaiter extends Waiter {
+
+        final APIRequest request;
+        final Function<APIRequest, CompletableFuture<APIResponse>> sender;
+        final CompletableFuture<APIResponse> future = new CompletableFuture<>();
+
+        AsyncWaiter(APIRequest request, Function<APIRequest, CompletableFuture<APIResponse>> sender) {
+            this.request = request;
+            this.sender = sender;
+        }
+
+        @Override
+        boolean dispatch() {
+            if (future.isDone()) return true;  // cancelled after it was taken from the queue
+
+            CompletableFuture<APIResponse> sent;
+            try {
+                sent = sender.apply(request);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return true;
+            }
+
+            if (sent.isDone()) {
+                complete(sent);
+                return true;
+            }
+
+            sent.whenComplete((response, error) -> {
+                release();
+                complete(sent);
+            });
+            return false;
+        }
+
+        private void complete(CompletableFuture<APIResponse> sent) {
+            sent.whenComplete((response, error) -> {
+                if (error != null) future.completeExceptionally(error);
+                else future.complete(response);
+            });
+        }
+    }
+
+    private static class SyncWaiter extends Waiter {
+
+        private boolean ready = false;
+
+        @Override
+        synchronized boolean dispatch() {
+            ready = true;
+            notifyAll();
+            return false;  // the waiting thread releases the slot
+        }
+
+        synchronized void await() throws InterruptedException {
+            while (!ready) wait();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import work.lclpnet.lclpnetwork.cache.LookupCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the validators (ETag and Last-Modified) of responses, in order to send conditional requests.
+ * If the server answers a conditional request with 304 Not Modified, the previous response is reused,
+ * including the object it has already decoded.
+ */
+public class ConditionalRequestCache {
+
+    private final LookupCache<APIRequest.Key, APIResponse> responses;
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    /**
+     * Construct a new ConditionalRequestCache.
+     *
+     * @param maximumSize The maximum number of responses to remember.
+     */
+    public ConditionalRequestCache(long maximumSize) {
+        this.responses = LookupCache.<APIRequest.Key, APIResponse>builder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Adds the conditional headers to a request, if a previous response of an identical request is known.
+     *
+     * @param request The request to send.
+     * @return The request to send, with conditional headers if applicable.
+     */
+    public APIRequest prepare(APIRequest request) {
+        APIResponse previous = responses.getIfPresent(request.getKey());
+        if (previous == null) return request;
+
+        String etag = previous.getETag(), lastModified = previous.getLastModified();
+        if (etag != null) request = request.withHeader("If-None-Match", etag);
+        if (lastModified != null) request = request.withHeader("If-Modified-Since", lastModified);
+
+        return request;
+    }
+
+    /**
+     * Handles the response of a request, which was prepared with {@link #prepare(APIRequest)}.
+     *
+     * @param request The original request, without conditional headers.
+     * @param response The response received from the server.
+     * @return The previous response, if the server answered with 304 Not Modified and the previous response is still
+     * remembered, otherwise the given response.
+     */
+    public APIResponse update(APIRequest request, APIResponse response) {
+        final APIRequest.Key key = request.getKey();
+
+        if (response.getResponseCode() == 304) {
+            APIResponse previous = responses.getIfPresent(key);
+            if (previous != null) {
+                notModifiedCount.incrementAndGet();
+                return previous;
+            }
+        } else if (response.getResponseCode() == 200 && response.hasValidator()) {
+            responses.put(key, response);
+        } else {
+            responses.invalidate(key);
+        }
+
+        return response;
+    }
+
+    /**
+     * @return The number of responses that were reused, because the server answered with 304 Not Modified.
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return The number of responses that are currently remembered.
+     */
+    public int size() {
+        return responses.size();
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
+import work.lclpnet.lclpnetwork.util.GsonAccess;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The JSON body of an {@link APIRequest}.
+ * Bodies are written directly to the connection, without creating an intermediate string first.
+ */
+public abstract class RequestBody {
+
+    private static final TypeAdapter<JsonElement> ELEMENT_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
+    /**
+     * Write the JSON text of this body.
+     *
+     * @param writer The writer to write to. It will not be closed.
+     * @throws IOException If there was an I/O error.
+     */
+    public abstract void writeTo(Writer writer) throws IOException;
+
+    /**
+     * Write the UTF-8 encoded JSON text of this body.
+     *
+     * @param out The output stream to write to. It will not be closed.
+     * @throws IOException If there was an I/O error.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writeTo(writer);
+        writer.flush();
+    }
+
+    /**
+     * Get the length of the UTF-8 encoded body, if it is known without encoding the body.
+     *
+     * @return The length of the body in bytes, or -1 if the length is unknown.
+     */
+    public long getContentLength() {
+        return -1L;
+    }
+
+    /**
+     * Get this body as JSON tree.
+     *
+     * @return The JSON tree of this body.
+     */
+    @Nonnull
+    public JsonElement toJsonTree() {
+        return JsonParser.parseString(toString());
+    }
+
+    /**
+     * Get the JSON text of this body.
+     *
+     * @return The JSON text of this body.
+     */
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /* static methods */
+
+    /**
+     * Create a body from a JSON tree.
+     *
+     * @param json The JSON tree.
+     * @return A new request body.
+     */
+    public static RequestBody of(JsonElement json) {
+        return new ElementBody(Objects.requireNonNull(json));
+    }
+
+    /**
+     * Create a body from an object, that is serialized using the {@link GsonAccess#getGson()} Gson instance.
+     *
+     * @param object The object to serialize.
+     * @return A new request body.
+     */
+    public static RequestBody ofObject(Object object) {
+        return ofObject(object, GsonAccess.getGson());
+    }
+
+    /**
+     * Create a body from an object, that is serialized using a custom Gson instance.
+     *
+     * @param object The object to serialize.
+     * @param gson A Gson instance that should be used for serialization.
+     * @return A new request body.
+     */
+    public static RequestBody ofObject(Object object, Gson gson) {
+        return new ObjectBody(Objects.requireNonNull(object), Objects.requireNonNull(gson));
+    }
+
+    /**
+     * Create a body from already encoded JSON text.
+     * The array is not copied and must not be modified afterwards.
+     *
+     * @param utf8 The UTF-8 encoded JSON text.
+     * @return A new request body.
+     */
+    public static RequestBody ofBytes(byte[] utf8) {
+        return new BytesBody(Objects.requireNonNull(utf8));
+    }
+
+    private static class ElementBody extends RequestBody {
+
+        private final JsonElement json;
+
+        ElementBody(JsonElement json) {
+            this.json = json;
+        }
+
+        @Override
+        public void writeTo(Writer writer) throws IOException {
+            // same output as JsonElement#toString()
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.setLenient(true);
+            ELEMENT_ADAPTER.write(jsonWriter, json);
+            jsonWriter.flush();
+        }
+
+        @Nonnull
+        @Override
+        public JsonElement toJsonTree() {
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            return json.toString();
+        }
+    }
+
+    private static class ObjectBody extends RequestBody {
+
+        private final Object object;
+        private final Gson gson;
+
+        ObjectBody(Object object, Gson gson) {
+            this.object = object;
+            this.gson = gson;
+        }
+
+        @Override
+        public void writeTo(Writer writer) throws IOException {
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            gson.toJson(object, object.getClass(), jsonWriter);
+            jsonWriter.flush();
+        }
+
+        @Nonnull
+        @Override
+        public JsonElement toJsonTree() {
+            return gson.toJsonTree(object);
+        }
+    }
+
+    private static class BytesBody extends RequestBody {
+
+        private final byte[] utf8;
+
+        BytesBody(byte[] utf8) {
+            this.utf8 = utf8;
+        }
+
+        @Override
+        public void writeTo(Writer writer) throws IOException {
+            writer.write(toString());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(utf8);
+        }
+
+        @Override
+        public long getContentLength() {
+            return utf8.length;
+        }
+
+        @Override
+        public String toString() {
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
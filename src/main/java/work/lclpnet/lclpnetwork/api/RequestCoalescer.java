@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Lets concurrent, identical requests share a single in-flight request.
+ * Requests are considered identical, if their {@link APIRequest#getKey() keys} are equal.
+ */
+public class RequestCoalescer {
+
+    private final Map<APIRequest.Key, CompletableFuture<APIResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sentRequests = new AtomicLong(), coalescedRequests = new AtomicLong();
+
+    /**
+     * Send a request or join an identical request that is already in flight.
+     *
+     * @param request The request to send.
+     * @param sender A function that actually sends a request.
+     * @return A completable future that will contain the (possibly shared) APIResponse.
+     */
+    public CompletableFuture<APIResponse> coalesce(APIRequest request, Function<APIRequest, CompletableFuture<APIResponse>> sender) {
+        final APIRequest.Key key = request.getKey();
+        final CompletableFuture<APIResponse> future = new CompletableFuture<>();
+
+        CompletableFuture<APIResponse> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            return existing.thenApply(Function.identity());  // callers must not be able to complete the shared future
+        }
+
+        sentRequests.incrementAndGet();
+
+        CompletableFuture<APIResponse> sent;
+        try {
+            sent = sender.apply(request);
+        } catch (RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            return future.thenApply(Function.identity());
+        }
+
+        sent.whenComplete((response, error) -> {
+            inFlight.remove(key, future);
+            if (error != null) future.completeExceptionally(error);
+            else future.complete(response);
+        });
+
+        return future.thenApply(Function.identity());
+    }
+
+    /**
+     * @return The number of requests that were actually sent.
+     */
+    public long getSentRequests() {
+        return sentRequests.get();
+    }
+
+    /**
+     * @return The number of requests that were saved, because an identical request was already in flight.
+     */
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * @return The number of distinct requests currently in flight.
+     */
+    public int getInFlightRequests() {
+        return inFlight.size();
+    }
+
+}
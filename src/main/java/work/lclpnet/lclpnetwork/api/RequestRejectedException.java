@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+/**
+ * Thrown when a {@link ConcurrencyLimiter} rejects a request, because the maximum number of requests is in flight and its wait queue is full.
+ * The request was not sent to the server, so it can safely be retried later.
+ */
+public class RequestRejectedException extends APIException {
+
+    private static final long serialVersionUID = 3817365218562790419L;
+
+    private final int maxInFlight, maxQueued;
+
+    public RequestRejectedException(int maxInFlight, int maxQueued) {
+        super(String.format("Too many requests: %d requests are in flight and %d are waiting.", maxInFlight, maxQueued));
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * @return The maximum number of requests in flight of the rejecting limiter.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return The maximum number of waiting requests of the rejecting limiter.
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the response bytes received over the wire and the bytes they were decoded to.
+ * The difference between both is the amount of bytes saved by compression.
+ */
+public class TransferStats {
+
+    private final AtomicLong wireBytes = new AtomicLong(), decodedBytes = new AtomicLong();
+
+    /**
+     * Record a transferred response body.
+     *
+     * @param wire The number of bytes received over the wire.
+     * @param decoded The number of bytes after decompression.
+     */
+    public void record(long wire, long decoded) {
+        wireBytes.addAndGet(wire);
+        decodedBytes.addAndGet(decoded);
+    }
+
+    /**
+     * @return The number of response body bytes received over the wire.
+     */
+    public long getWireBytes() {
+        return wireBytes.get();
+    }
+
+    /**
+     * @return The number of response body bytes after decompression.
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferStats{wireBytes=%d, decodedBytes=%d}", getWireBytes(), getDecodedBytes());
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.api;
+
+import work.lclpnet.lclpnetwork.metrics.RequestPhase;
+import work.lclpnet.lclpnetwork.metrics.RequestTimings;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link APITransport}, which sends every request over a {@link HttpURLConnection}.
+ * Requests block the calling thread until the response has been read.
+ * <p>
+ * By default, the connection is closed after every request.
+ * With {@link #setKeepAlive(boolean)}, connections are handed back to the JDK's keep-alive cache instead,
+ * so that subsequent requests to the same host can skip the TCP and TLS handshakes.
+ * Please mind that the JDK caches at most <code>http.maxConnections</code> (default 5) idle connections per host.
+ * <p>
+ * Unless disabled with {@link #setCompression(boolean)}, gzip and deflate compressed responses are accepted
+ * and decompressed while they are read.
+ * <p>
+ * The JDK does not expose the sockets of plain HTTP connections. Therefore, the idle timeout and the
+ * opened and reused connection counters only cover HTTPS connections, whose sockets are created by this transport.
+ * The per-host connection limit applies to both.
+ */
+public class URLConnectionTransport implements APITransport {
+
+    protected volatile boolean keepAlive = false;
+    protected volatile int maxConnectionsPerHost = 0;
+    protected volatile long idleTimeoutMillis = 0L;
+    protected volatile boolean compression = true;
+    protected volatile SSLSocketFactory sslSocketFactory = null;
+    protected final TransferStats transferStats = new TransferStats();
+    protected final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    protected final AtomicLong openedConnections = new AtomicLong(), reusedConnections = new AtomicLong();
+    private volatile TrackingSSLSocketFactory socketFactory = null;
+
+    /**
+     * @return Whether connections are kept alive and reused between requests.
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Sets whether connections should be kept alive and reused between requests.
+     * @param keepAlive True, if connections should be reused.
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * @return The maximum number of concurrent connections per host, or 0 if there is no limit.
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Sets the maximum number of concurrent connections per host.
+     * Requests exceeding this limit will wait until a connection becomes available.
+     * The limit also applies to hosts which have been requested before. Requests that are already sent are not affected.
+     *
+     * @param maxConnectionsPerHost The maximum number of connections, or 0 for no limit.
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 0) throw new IllegalArgumentException("maxConnectionsPerHost must not be negative.");
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        hosts.values().forEach(host -> host.setMaxConnections(maxConnectionsPerHost));
+    }
+
+    /**
+     * @param unit The unit of the result.
+     * @return The idle timeout, after which kept-alive connections are closed, or 0 if there is no timeout.
+     */
+    public long getIdleTimeout(TimeUnit unit) {
+        return unit.convert(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the time a host may be idle, before its kept-alive connections are closed.
+     * Idle connections are closed lazily, when the next request to that host is sent.
+     * Only connections opened by this transport via HTTPS can be closed.
+     *
+     * @param timeout The idle timeout, or 0 for no timeout.
+     * @param unit The unit of the timeout.
+     */
+    public void setIdleTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) throw new IllegalArgumentException("timeout must not be negative.");
+        this.idleTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * @return The socket factory for HTTPS connections, or null if the JDK's default factory is used.
+     */
+    @Nullable
+    public SSLSocketFactory getSSLSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    /**
+     * Sets the socket factory for HTTPS connections, e.g. to trust a custom certificate.
+     * Connections of the previous factory are not reused.
+     *
+     * @param sslSocketFactory The socket factory, or null to use {@link HttpsURLConnection#getDefaultSSLSocketFactory()}.
+     */
+    public void setSSLSocketFactory(@Nullable SSLSocketFactory sslSocketFactory) {
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    /**
+     * @return Whether compressed responses are requested.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets whether compressed responses should be requested, using the Accept-Encoding header.
+     * @param compression True, if gzip and deflate compressed responses should be accepted.
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return The statistics of the response bytes received over the wire and after decompression.
+     */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    /**
+     * @return The number of requests which had to open a new connection. Only HTTPS requests are counted.
+     */
+    public long getOpenedConnections() {
+        return openedConnections.get();
+    }
+
+    /**
+     * @return The number of requests which reused an existing connection. Only HTTPS requests are counted.
+     */
+    public long getReusedConnections() {
+        return reusedConnections.get();
+    }
+
+    @Override
+    public APIResponse execute(APIRequest request) throws APIException {
+        final RequestTimings timings = new RequestTimings(System.nanoTime());
+        final URL url = request.getUrl();
+        final HostState host = hosts.computeIfAbsent(hostKey(url.getHost(), url.getPort() == -1 ? url.getDefaultPort() : url.getPort()),
+                key -> new HostState());
+
+        try {
+            host.acquire(maxConnectionsPerHost, idleTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIException(e);
+        }
+
+        final TrackingSSLSocketFactory factory = getSocketFactory();
+        factory.target.set(host);
+        try {
+            return send(request, factory, timings);
+        } finally {
+            factory.target.remove();
+            host.release();
+        }
+    }
+
+    private TrackingSSLSocketFactory getSocketFactory() {
+        SSLSocketFactory delegate = sslSocketFactory;
+        if (delegate == null) delegate = HttpsURLConnection.getDefaultSSLSocketFactory();
+
+        TrackingSSLSocketFactory factory = socketFactory;
+        if (factory == null || factory.delegate != delegate) {
+            synchronized (this) {
+                factory = socketFactory;
+                if (factory == null || factory.delegate != delegate)
+                    socketFactory = factory = new TrackingSSLSocketFactory(delegate);
+            }
+        }
+        return factory;
+    }
+
+    private APIResponse send(APIRequest request, TrackingSSLSocketFactory socketFactory, RequestTimings timings) throws APIException {
+        try {
+            HttpURLConnection conn = (HttpURLConnection) request.getUrl().openConnection();
+            conn.setRequestMethod(request.getMethod());
+            request.getHeaders().forEach(conn::setRequestProperty);
+            if (compression && !request.getHeaders().containsKey("Accept-Encoding"))
+                conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
+
+            final boolean https = conn instanceof HttpsURLConnection;
+            if (https) ((HttpsURLConnection) conn).setSSLSocketFactory(socketFactory);
+
+            final RequestBody body = request.getRequestBody();
+            BodyBuffer buffer = null;
+            long length = 0L;
+
+            if (body != null) {
+                conn.setDoOutput(true);
+
+                length = body.getContentLength();
+                if (length < 0) {
+                    // encode into a reused buffer first, in order to send a fixed content length
+                    buffer = BodyBuffer.get();
+                    buffer.encode(body);
+                    length = buffer.size();
+                }
+
+                conn.setFixedLengthStreamingMode(length);
+            }
+
+            socketFactory.created.set(false);
+
+            try {
+                conn.connect();
+            } catch (IOException e) {
+                if (buffer != null) buffer.release();
+                throw e;
+            }
+
+            long phaseStart = System.nanoTime();
+            timings.record(RequestPhase.CONNECT, phaseStart - timings.getStartNanos());
+
+            if (body != null) {
+                try (OutputStream out = conn.getOutputStream()) {
+                    if (buffer != null) buffer.writeTo(out);
+                    else body.writeTo(out);
+                } finally {
+                    if (buffer != null) buffer.release();
+                }
+
+                timings.record(RequestPhase.WRITE, System.nanoTime() - phaseStart);
+            }
+
+            APIResponse response = APIResponse.fromRequest(conn, transferStats, request.getResponseType(), request.getResponseAdapter(),
+                    timings, !keepAlive);
+            response.requestBytes = length;
+
+            // the JDK may silently reconnect if a cached connection turns out to be closed, so count afterwards
+            if (https) {
+                if (socketFactory.created.get()) openedConnections.incrementAndGet();
+                else reusedConnections.incrementAndGet();
+            }
+
+            // e.g. responses without a body, whose connection was not disconnected while reading
+            if (!keepAlive) conn.disconnect();
+
+            return response;
+        } catch (ConnectException e) {
+            throw APIException.NO_CONNECTION;
+        } catch (IOException e) {
+            throw new APIException(e);
+        }
+    }
+
+    private static String hostKey(String host, int port) {
+        return String.format("%s:%d", host.toLowerCase(Locale.ROOT), port);
+    }
+
+    /**
+     * A per-thread buffer for encoding request bodies of unknown length.
+     */
+    private static class BodyBuffer extends ByteArrayOutputStream {
+
+        private static final int MAX_RETAINED_SIZE = 64 * 1024;
+        private static final ThreadLocal<BodyBuffer> BUFFER = ThreadLocal.withInitial(BodyBuffer::new);
+
+        private final Writer writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+
+        private BodyBuffer() {
+            super(1024);
+        }
+
+        static BodyBuffer get() {
+            return BUFFER.get();
+        }
+
+        void encode(RequestBody body) throws IOException {
+            reset();
+            body.writeTo(writer);
+            writer.flush();
+        }
+
+        void release() {
+            // do not keep exceptionally large buffers around
+            if (buf.length > MAX_RETAINED_SIZE) BUFFER.remove();
+            else reset();
+        }
+    }
+
+    /**
+     * Per-host connection bookkeeping.
+     */
+    protected static class HostState {
+
+        private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private int active = 0, maxConnections = 0;
+        private long lastActivity = System.currentTimeMillis();
+
+        /**
+         * Waits until fewer than the maximum number of connections are active, then marks one more as active.
+         *
+         * @param maxConnections The current maximum number of connections, or 0 for no limit.
+         * @param idleTimeoutMillis The idle timeout, or 0 for no timeout.
+         * @throws InterruptedException If the thread was interrupted while waiting.
+         */
+        protected synchronized void acquire(int maxConnections, long idleTimeoutMillis) throws InterruptedException {
+            this.maxConnections = maxConnections;
+            while (this.maxConnections > 0 && active >= this.maxConnections) wait();
+
+            // no request is active, so every tracked socket is idle inside the keep-alive cache
+            if (active == 0 && idleTimeoutMillis > 0 && System.currentTimeMillis() - lastActivity > idleTimeoutMillis)
+                closeSockets();
+
+            active++;
+        }
+
+        protected synchronized void release() {
+            active--;
+            lastActivity = System.currentTimeMillis();
+            notifyAll();
+        }
+
+        /**
+         * Changes the maximum number of connections, also for requests which are already waiting.
+         *
+         * @param maxConnections The maximum number of connections, or 0 for no limit.
+         */
+        protected synchronized void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            notifyAll();
+        }
+
+        private void closeSockets() {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {}
+            }
+            sockets.clear();
+        }
+    }
+
+    /**
+     * Delegates to another {@link SSLSocketFactory}, while tracking the sockets it creates for the host of the current thread's request.
+     * The same instance must be used for every connection, since the JDK will only reuse connections of equal factories.
+     */
+    private class TrackingSSLSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+        private final ThreadLocal<Boolean> created = ThreadLocal.withInitial(() -> false);
+        private final ThreadLocal<HostState> target = new ThreadLocal<>();
+
+        private TrackingSSLSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private Socket track(Socket socket) {
+            created.set(true);
+
+            HostState state = target.get();
+            if (state != null) {
+                state.sockets.removeIf(Socket::isClosed);
+                state.sockets.add(socket);
+            }
+
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return track(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return track(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return track(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.cache;
+
+/**
+ * An immutable snapshot of the statistics of a {@link LookupCache}.
+ */
+public class CacheStats {
+
+    private final long hitCount, negativeHitCount, missCount, evictionCount, expirationCount, refreshCount;
+
+    public CacheStats(long hitCount, long negativeHitCount, long missCount, long evictionCount, long expirationCount, long refreshCount) {
+        this.hitCount = hitCount;
+        this.negativeHitCount = negativeHitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+        this.refreshCount = refreshCount;
+    }
+
+    /**
+     * @return The number of lookups that were answered by the cache.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups that were answered by a negative entry. These are included in the hit count.
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    /**
+     * @return The number of lookups that had to be loaded.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of entries that were removed, because the cache exceeded its size or weight limit.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The number of entries that were removed, because they expired.
+     */
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    /**
+     * @return The number of background refreshes that were started for stale entries.
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * @return The ratio of lookups that were answered by the cache, or 1 if there were no lookups yet.
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 1D : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hitCount=%d, negativeHitCount=%d, missCount=%d, evictionCount=%d, expirationCount=%d, refreshCount=%d}",
+                hitCount, negativeHitCount, missCount, evictionCount, expirationCount, refreshCount);
+    }
+}
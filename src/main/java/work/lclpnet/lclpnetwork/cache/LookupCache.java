@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.cache;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A bounded, thread-safe cache for API lookups.
+ * Entries expire after a fixed time after they were written, and the least recently used entries are evicted,
+ * as soon as the cache exceeds its maximum size or weight.
+ * <p>
+ * Optionally, lookups that resulted in null (e.g. an unknown UUID) can be cached as well.
+ * These negative entries are kept separately, with their own, usually shorter, time to live and size limit.
+ * <p>
+ * With {@link Builder#refreshAfterWrite(long, TimeUnit)}, entries older than the refresh time are still returned
+ * immediately, while a single background reload of the entry is started (stale-while-revalidate).
+ * Only lookups of entries older than the expiry time have to wait for a reload.
+ * <p>
+ * Concurrent lookups of the same missing key share a single load, so that e.g. a burst of lookups
+ * for a joining player results in only one request.
+ * <p>
+ * Instances are created with {@link #builder()}.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ * @author LCLP
+ */
+public class LookupCache<K, V> {
+
+    protected final long maximumSize, maximumWeight;
+    protected final ToIntFunction<? super V> weigher;
+    protected final long expireAfterWriteNanos, refreshAfterWriteNanos;
+    protected final long maximumNegativeSize, expireNegativeAfterWriteNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final LinkedHashMap<K, Long> negativeEntries = new LinkedHashMap<>(16, 0.75F, true);
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+    private final Map<K, Object> refreshing = new HashMap<>();
+    private long totalWeight = 0L;
+    private long hitCount = 0L, negativeHitCount = 0L, missCount = 0L, evictionCount = 0L, expirationCount = 0L, refreshCount = 0L;
+
+    protected LookupCache(Builder<K, V> builder) {
+        this.maximumSize = builder.maximumSize;
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+        this.maximumNegativeSize = builder.maximumNegativeSize;
+        this.expireNegativeAfterWriteNanos = builder.expireNegativeAfterWriteNanos;
+    }
+
+    /**
+     * Get a cached value, or load it, if it is not cached.
+     * Loaded null values are only cached, if negative caching is enabled.
+     * If the entry is due for a refresh, the cached value is returned and the loader is called in the background.
+     * If the key is already being loaded, the pending load is joined instead of calling the loader again.
+     *
+     * @param key The key of the value.
+     * @param loader A function to load the value of a key.
+     * @return A completable future that will contain the value.
+     */
+    public CompletableFuture<V> get(@Nonnull K key, Function<? super K, CompletableFuture<V>> loader) {
+        final Entry<V> entry;
+        final CompletableFuture<V> pending;
+        CompletableFuture<V> future = null;
+        Object refresh = null;
+
+        synchronized (this) {
+            entry = getEntry(key);
+            if (entry != null) {
+                if (entry.value != null && needsRefresh(entry)) refresh = beginRefresh(key);
+                pending = null;
+            } else {
+                pending = loading.get(key);
+                if (pending == null) loading.put(key, future = new CompletableFuture<>());
+            }
+        }
+
+        if (entry != null) {
+            if (refresh != null) refresh(key, loader, refresh);
+            return CompletableFuture.completedFuture(entry.value);
+        }
+
+        // callers must not be able to complete the shared future
+        if (pending != null) return pending.thenApply(Function.identity());
+
+        load(key, loader, future);
+        return future.thenApply(Function.identity());
+    }
+
+    private void load(K key, Function<? super K, CompletableFuture<V>> loader, CompletableFuture<V> future) {
+        CompletableFuture<V> loaded;
+        try {
+            loaded = loader.apply(key);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key, future);
+            }
+            future.completeExceptionally(e);
+            return;
+        }
+
+        loaded.whenComplete((value, error) -> {
+            synchronized (this) {
+                // the key may have been invalidated while it was loaded, the result is outdated then
+                if (loading.remove(key, future) && error == null) {
+                    if (value != null) put(key, value);
+                    else putNegative(key);
+                }
+            }
+
+            if (error != null) future.completeExceptionally(error);
+            else future.complete(value);
+        });
+    }
+
+    /**
+     * @param token The token of this refresh, see {@link #beginRefresh(Object)}.
+     */
+    private void refresh(K key, Function<? super K, CompletableFuture<V>> loader, Object token) {
+        CompletableFuture<V> future;
+        try {
+            future = loader.apply(key);
+        } catch (RuntimeException e) {
+            endRefresh(key, token);
+            return;
+        }
+
+        future.whenComplete((value, error) -> {
+            synchronized (this) {
+                // the key may have been invalidated during the refresh, the result is outdated then
+                if (!refreshing.remove(key, token)) return;
+
+                // if the reload fails, the stale value will be kept until it expires
+                if (error != null) return;
+
+                if (value != null) put(key, value);
+                else {
+                    // the value no longer exists; without negative caching, the next lookup loads it again
+                    removeEntry(key);
+                    putNegative(key);
+                }
+            }
+        });
+    }
+
+    private boolean needsRefresh(Entry<V> entry) {
+        return refreshAfterWriteNanos > 0 && now() - entry.writeTime >= refreshAfterWriteNanos;
+    }
+
+    /**
+     * @return A token identifying the refresh, or null if the key is already being refreshed.
+     */
+    @Nullable
+    private Object beginRefresh(K key) {
+        if (refreshing.containsKey(key)) return null;
+
+        Object token = new Object();
+        refreshing.put(key, token);
+        refreshCount++;
+        return token;
+    }
+
+    private synchronized void endRefresh(K key, Object token) {
+        refreshing.remove(key, token);
+    }
+
+    /**
+     * Get a cached value.
+     *
+     * @param key The key of the value.
+     * @return The cached value, or null if there is no valid entry for the key or if the key is cached as absent.
+     */
+    @Nullable
+    public V getIfPresent(@Nonnull K key) {
+        Entry<V> entry = getEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Get a cache entry.
+     *
+     * @param key The key of the entry.
+     * @return The entry, an entry with a null value if the key is cached as absent, or null if there is no valid entry.
+     */
+    @Nullable
+    protected synchronized Entry<V> getEntry(K key) {
+        Objects.requireNonNull(key);
+
+        final long now = now();
+
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry, now)) {
+            removeEntry(key);
+            expirationCount++;
+            entry = null;
+        }
+
+        if (entry == null && !negativeEntries.isEmpty()) {
+            Long writeTime = negativeEntries.get(key);
+            if (writeTime != null) {
+                if (now - writeTime >= expireNegativeAfterWriteNanos) {
+                    negativeEntries.remove(key);
+                    expirationCount++;
+                } else {
+                    negativeHitCount++;
+                    entry = absent();
+                }
+            }
+        }
+
+        if (entry == null) missCount++;
+        else hitCount++;
+
+        return entry;
+    }
+
+    /**
+     * Put a value into the cache, replacing any previous value.
+     *
+     * @param key The key of the value.
+     * @param value The value to cache.
+     */
+    public synchronized void put(@Nonnull K key, @Nonnull V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+
+        int weight = weigher.applyAsInt(value);
+        if (weight < 0) throw new IllegalStateException("Weights must not be negative.");
+
+        removeEntry(key);
+        negativeEntries.remove(key);
+        entries.put(key, new Entry<>(value, weight, now()));
+        totalWeight += weight;
+
+        evict();
+    }
+
+    /**
+     * Remember that there is no value for a key.
+     * Does nothing, if negative caching is disabled.
+     *
+     * @param key The key that has no value.
+     */
+    public synchronized void putNegative(@Nonnull K key) {
+        Objects.requireNonNull(key);
+        if (expireNegativeAfterWriteNanos <= 0 || maximumNegativeSize <= 0) return;
+
+        removeEntry(key);
+        negativeEntries.put(key, now());
+
+        Iterator<K> iterator = negativeEntries.keySet().iterator();
+        while (negativeEntries.size() > maximumNegativeSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove the entry of a key, including a negative entry.
+     * Loads and refreshes of the key, which are still in progress, will not be cached when they complete.
+     *
+     * @param key The key to invalidate.
+     */
+    public synchronized void invalidate(@Nonnull K key) {
+        removeEntry(Objects.requireNonNull(key));
+        negativeEntries.remove(key);
+        loading.remove(key);
+        refreshing.remove(key);
+    }
+
+    /**
+     * Remove all entries, including negative entries.
+     * Loads and refreshes, which are still in progress, will not be cached when they complete.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        negativeEntries.clear();
+        loading.clear();
+        refreshing.clear();
+        totalWeight = 0L;
+    }
+
+    /**
+     * @return The number of entries, including expired entries that were not yet removed.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of keys that are currently being loaded, not counting background refreshes.
+     */
+    public synchronized int loadingSize() {
+        return loading.size();
+    }
+
+    /**
+     * @return The number of negative entries, including expired entries that were not yet removed.
+     */
+    public synchronized int negativeSize() {
+        return negativeEntries.size();
+    }
+
+    /**
+     * @return The total weight of all entries.
+     */
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return A snapshot of the statistics of this cache.
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hitCount, negativeHitCount, missCount, evictionCount, expirationCount, refreshCount);
+    }
+
+    private void removeEntry(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) totalWeight -= removed.weight;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+
+        // the iteration order is from least to most recently used
+        while ((entries.size() > maximumSize || totalWeight > maximumWeight) && iterator.hasNext()) {
+            Entry<V> eldest = iterator.next().getValue();
+            iterator.remove();
+            totalWeight -= eldest.weight;
+            evictionCount++;
+        }
+    }
+
+    protected boolean isExpired(Entry<V> entry, long now) {
+        return expireAfterWriteNanos > 0 && now - entry.writeTime >= expireAfterWriteNanos;
+    }
+
+    protected long now() {
+        return System.nanoTime();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Entry<V> absent() {
+        return (Entry<V>) ABSENT;
+    }
+
+    private static final Entry<?> ABSENT = new Entry<>(null, 0, 0L);
+
+    /**
+     * Create a new builder for a {@link LookupCache}.
+     *
+     * @param <K> The key type.
+     * @param <V> The value type.
+     * @return A new builder.
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    protected static class Entry<V> {
+
+        protected final V value;
+        protected final int weight;
+        protected final long writeTime;
+
+        protected Entry(V value, int weight, long writeTime) {
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * A builder for {@link LookupCache} instances.
+     *
+     * @param <K> The key type.
+     * @param <V> The value type.
+     */
+    public static class Builder<K, V> {
+
+        protected long maximumSize = Long.MAX_VALUE, maximumWeight = Long.MAX_VALUE;
+        protected ToIntFunction<? super V> weigher = value -> 1;
+        protected long expireAfterWriteNanos = 0L, refreshAfterWriteNanos = 0L;
+        protected long maximumNegativeSize = 0L, expireNegativeAfterWriteNanos = 0L;
+
+        protected Builder() {}
+
+        /**
+         * Limit the number of entries in the cache.
+         *
+         * @param maximumSize The maximum number of entries.
+         * @return The same builder.
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            if (maximumSize < 0) throw new IllegalArgumentException("maximumSize must not be negative.");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Limit the total estimated weight of the entries in the cache.
+         *
+         * @param maximumWeight The maximum total weight.
+         * @param weigher A function to estimate the weight of a value, e.g. its approximate size in bytes.
+         * @return The same builder.
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight, ToIntFunction<? super V> weigher) {
+            if (maximumWeight < 0) throw new IllegalArgumentException("maximumWeight must not be negative.");
+            this.maximumWeight = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        /**
+         * Let entries expire after a fixed time after they were written.
+         *
+         * @param duration The time to live of an entry, or 0 to keep entries until they are evicted.
+         * @param unit The unit of the duration.
+         * @return The same builder.
+         */
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0) throw new IllegalArgumentException("duration must not be negative.");
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Reload entries in the background, once they are older than the given duration and are looked up again.
+         * Until the reload completes, the stale value is returned. This duration should be shorter than the
+         * expiry duration of {@link #expireAfterWrite(long, TimeUnit)}, which remains a hard limit.
+         *
+         * @param duration The time after which entries should be refreshed, or 0 to never refresh entries.
+         * @param unit The unit of the duration.
+         * @return The same builder.
+         */
+        public Builder<K, V> refreshAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0) throw new IllegalArgumentException("duration must not be negative.");
+            this.refreshAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Cache lookups that resulted in null, so that repeated lookups of unknown keys do not have to be loaded again.
+         * Negative entries are bounded separately and should have a short time to live,
+         * so that newly created values become visible quickly.
+         *
+         * @param maximumSize The maximum number of negative entries.
+         * @param duration The time to live of a negative entry.
+         * @param unit The unit of the duration.
+         * @return The same builder.
+         */
+        public Builder<K, V> negativeCaching(long maximumSize, long duration, TimeUnit unit) {
+            if (maximumSize < 0) throw new IllegalArgumentException("maximumSize must not be negative.");
+            if (duration < 0) throw new IllegalArgumentException("duration must not be negative.");
+            this.maximumNegativeSize = maximumSize;
+            this.expireNegativeAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @return A new cache with the settings of this builder.
+         */
+        public LookupCache<K, V> build() {
+            return new LookupCache<>(this);
+        }
+    }
+
+}
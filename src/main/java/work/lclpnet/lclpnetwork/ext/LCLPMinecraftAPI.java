@@ -8,22 +8,33 @@ package work.lclpnet.lclpnetwork.ext;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
 import work.lclpnet.lclpnetwork.LCLPNetworkAPI;
 import work.lclpnet.lclpnetwork.api.APIAccess;
+import work.lclpnet.lclpnetwork.api.APIResponse;
+import work.lclpnet.lclpnetwork.api.RequestBody;
 import work.lclpnet.lclpnetwork.api.ResponseEvaluationException;
 import work.lclpnet.lclpnetwork.api.annotation.AuthRequired;
 import work.lclpnet.lclpnetwork.api.annotation.Scopes;
+import work.lclpnet.lclpnetwork.cache.LookupCache;
 import work.lclpnet.lclpnetwork.model.MCPlayer;
 import work.lclpnet.lclpnetwork.model.MCStats;
 import work.lclpnet.lclpnetwork.model.MCUser;
 import work.lclpnet.lclpnetwork.model.User;
-import work.lclpnet.lclpnetwork.util.JsonBuilder;
+import work.lclpnet.lclpnetwork.util.BatchLoader;
+import work.lclpnet.lclpnetwork.util.JsonStreamBuilder;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-import static work.lclpnet.lclpnetwork.util.JsonBuilder.object;
+import static work.lclpnet.lclpnetwork.util.JsonStreamBuilder.localObject;
 
 /**
  * A library of LCLPNetwork Minecraft API requests.
@@ -45,6 +56,96 @@ public class LCLPMinecraftAPI extends LCLPNetworkAPI {
         super(access);
     }
 
+    /* */
+
+    protected volatile Batchers batchers = null;
+    protected volatile LookupCache<String, MCUser> mcUserCache = null;
+    protected volatile LookupCache<String, MCPlayer> mcPlayerCache = null;
+    protected volatile LookupCache<String, MCStats> statsCache = null;
+
+    /**
+     * Enables automatic batching of the single-key lookups
+     * {@link #getMCPlayerByUUID(String)}, {@link #getMCUserByUUID(String)},
+     * {@link #getMCPlayerById(long)} and {@link #getMCUserByUserId(long)}.
+     * Lookups are collected for a short time window and then fetched with a single bulk request.
+     *
+     * @param window The time to wait for further lookups after the first lookup of a batch.
+     * @param unit The unit of the window.
+     * @param maxBatchSize The maximum number of keys per bulk request. A full batch is sent immediately.
+     */
+    public void enableBatching(long window, TimeUnit unit, int maxBatchSize) {
+        this.batchers = new Batchers(window, unit, maxBatchSize);
+    }
+
+    /**
+     * Disables automatic batching of single-key lookups.
+     * Lookups that are already collected will still be sent.
+     */
+    public void disableBatching() {
+        Batchers batchers = this.batchers;
+        this.batchers = null;
+        if (batchers != null) batchers.flush();
+    }
+
+    /**
+     * @return True, if single-key lookups are batched automatically.
+     */
+    public boolean isBatching() {
+        return batchers != null;
+    }
+
+    /**
+     * @return The cache of {@link #getMCUserByUUID(String)}, or null if MCUsers are not cached.
+     */
+    @Nullable
+    public LookupCache<String, MCUser> getMCUserCache() {
+        return mcUserCache;
+    }
+
+    /**
+     * Sets the cache used by {@link #getMCUserByUUID(String)}.
+     * @param mcUserCache The cache to use, or null to disable caching.
+     */
+    public void setMCUserCache(@Nullable LookupCache<String, MCUser> mcUserCache) {
+        this.mcUserCache = mcUserCache;
+    }
+
+    /**
+     * @return The cache of {@link #getMCPlayerByUUID(String)}, or null if MCPlayers are not cached.
+     */
+    @Nullable
+    public LookupCache<String, MCPlayer> getMCPlayerCache() {
+        return mcPlayerCache;
+    }
+
+    /**
+     * Sets the cache used by {@link #getMCPlayerByUUID(String)}.
+     * @param mcPlayerCache The cache to use, or null to disable caching.
+     */
+    public void setMCPlayerCache(@Nullable LookupCache<String, MCPlayer> mcPlayerCache) {
+        this.mcPlayerCache = mcPlayerCache;
+    }
+
+    /**
+     * @return The cache of {@link #getStats(String, Iterable)}, or null if MCStats are not cached.
+     */
+    @Nullable
+    public LookupCache<String, MCStats> getStatsCache() {
+        return statsCache;
+    }
+
+    /**
+     * Sets the cache used by {@link #getStats(String, Iterable)}.
+     * Entries are keyed by the UUID and the requested modules.
+     * Consider using {@link LookupCache.Builder#refreshAfterWrite(long, TimeUnit)},
+     * so that stale stats are returned immediately while they are reloaded in the background.
+     *
+     * @param statsCache The cache to use, or null to disable caching.
+     */
+    public void setStatsCache(@Nullable LookupCache<String, MCStats> statsCache) {
+        this.statsCache = statsCache;
+    }
+
     /**
      * Fetches a User by MCUser uuid.
      * Will result in null, if nobody linked a minecraft account with that uuid.
@@ -64,58 +165,74 @@ public class LCLPMinecraftAPI extends LCLPNetworkAPI {
     /**
      * Fetches a MCUser by UUID.
      * Will result in null, if nobody linked a minecraft account with that uuid.
+     * Fails with a {@link ResponseEvaluationException}, if the server answered with another error (e.g. 429 or 5xx).
      *
      * @param uuid The UUID, with dashes.
      * @return A completable future that will contain the MCUser.
      */
     public CompletableFuture<MCUser> getMCUserByUUID(String uuid) {
-        return api.post("api/mc/user", object().set("uuid", uuid).createObject()).thenApply(resp -> {
-            if(resp.getResponseCode() != 200) return null;
-            else return resp.getResponseAs(MCUser.class);
-        });
+        LookupCache<String, MCUser> cache = this.mcUserCache;
+        if (cache != null) return cache.get(uuid, this::fetchMCUserByUUID);
+        else return fetchMCUserByUUID(uuid);
+    }
+
+    protected CompletableFuture<MCUser> fetchMCUserByUUID(String uuid) {
+        Batchers batchers = this.batchers;
+        if (batchers != null) return batchers.mcUserByUUID.load(uuid);
+
+        return api.post("api/mc/user", localObject().set("uuid", uuid).createBody(), MCUser.class).thenApply(resp -> lookupResult(resp, MCUser.class));
     }
 
     /**
      * Fetches a MCUser by LCLPNetwork user id.
      * Will result in null, if nobody with that account id linked a minecraft account
      * or if there is no account with that id.
+     * Fails with a {@link ResponseEvaluationException}, if the server answered with another error (e.g. 429 or 5xx).
      *
      * @param userId The user id of the LCLPNetwork user account to fetch the MCUser from.
      * @return A completable future that will contain the MCUser.
      */
     public CompletableFuture<MCUser> getMCUserByUserId(long userId) {
-        return api.post("api/mc/user-by-user-id", object().set("userId", userId).createObject()).thenApply(resp -> {
-            if(resp.getResponseCode() != 200) return null;
-            else return resp.getResponseAs(MCUser.class);
-        });
+        Batchers batchers = this.batchers;
+        if (batchers != null) return batchers.mcUserByUserId.load(userId);
+
+        return api.post("api/mc/user-by-user-id", localObject().set("userId", userId).createBody(), MCUser.class).thenApply(resp -> lookupResult(resp, MCUser.class));
     }
 
     /**
      * Fetches a MCPlayer by UUID.
      * Will result in null, if no minecraft account with that uuid is tracked by LCLPNetwork.'.
+     * Fails with a {@link ResponseEvaluationException}, if the server answered with another error (e.g. 429 or 5xx).
      *
      * @param uuid The UUID, with dashes.
      * @return A completable future that will contain the MCPlayer.
      */
     public CompletableFuture<MCPlayer> getMCPlayerByUUID(String uuid) {
-        return api.post("api/mc/player", object().set("uuid",uuid).createObject()).thenApply(resp -> {
-            if(resp.getResponseCode() != 200) return null;
-            else return resp.getResponseAs(MCPlayer.class);
-        });
+        LookupCache<String, MCPlayer> cache = this.mcPlayerCache;
+        if (cache != null) return cache.get(uuid, this::fetchMCPlayerByUUID);
+        else return fetchMCPlayerByUUID(uuid);
+    }
+
+    protected CompletableFuture<MCPlayer> fetchMCPlayerByUUID(String uuid) {
+        Batchers batchers = this.batchers;
+        if (batchers != null) return batchers.mcPlayerByUUID.load(uuid);
+
+        return api.post("api/mc/player", localObject().set("uuid", uuid).createBody(), MCPlayer.class).thenApply(resp -> lookupResult(resp, MCPlayer.class));
     }
 
     /**
      * Fetches a MCPlayer by MCPlayer id.
      * Will result in null, if there is no MCPlayer with that id.
+     * Fails with a {@link ResponseEvaluationException}, if the server answered with another error (e.g. 429 or 5xx).
      *
      * @param playerId The id of the MCPlayer.
      * @return A completable future that will contain the MCPlayer.
      */
     public CompletableFuture<MCPlayer> getMCPlayerById(long playerId) {
-        return api.post("api/mc/player-by-id", object().set("playerId", playerId).createObject()).thenApply(resp -> {
-            if(resp.getResponseCode() != 200) return null;
-            else return resp.getResponseAs(MCPlayer.class);
-        });
+        Batchers batchers = this.batchers;
+        if (batchers != null) return batchers.mcPlayerById.load(playerId);
+
+        return api.post("api/mc/player-by-id", localObject().set("playerId", playerId).createBody(), MCPlayer.class).thenApply(resp -> lookupResult(resp, MCPlayer.class));
     }
 
     /**
@@ -123,14 +240,88 @@ public class LCLPMinecraftAPI extends LCLPNetworkAPI {
      * Will result in null, if nobody with that account id linked a minecraft account
      * or if there is no account with that id
      * or is currently not tracked as player by LCLPNetwork.
+     * Fails with a {@link ResponseEvaluationException}, if the server answered with another error (e.g. 429 or 5xx).
      *
      * @param userId The user id of the LCLPNetwork user account to fetch the MCPlayer from.
      * @return A completable future that will contain the MCPlayer.
      */
     public CompletableFuture<MCPlayer> getMCPlayerByUserId(long userId) {
-        return api.post("api/mc/player-by-user-id", object().set("userId", userId).createObject()).thenApply(resp -> {
-            if(resp.getResponseCode() != 200) return null;
-            else return resp.getResponseAs(MCPlayer.class);
+        return api.post("api/mc/player-by-user-id", localObject().set("userId", userId).createBody(), MCPlayer.class).thenApply(resp -> lookupResult(resp, MCPlayer.class));
+    }
+
+    /**
+     * Fetches multiple MCUsers by UUID with a single request.
+     * UUIDs, for which nobody linked a minecraft account, will not be contained in the resulting map.
+     *
+     * @param uuids The UUIDs, with dashes.
+     * @return A completable future that will contain the MCUsers, mapped by their UUID.
+     */
+    public CompletableFuture<Map<String, MCUser>> getMCUsersByUUIDs(Collection<String> uuids) {
+        return fetchBulk("api/mc/users", "uuids", uuids, MCUser[].class, MCUser::getUuid);
+    }
+
+    /**
+     * Fetches multiple MCUsers by LCLPNetwork user id with a single request.
+     * User ids, for which there is no linked minecraft account, will not be contained in the resulting map.
+     *
+     * @param userIds The user ids of the LCLPNetwork user accounts to fetch the MCUsers from.
+     * @return A completable future that will contain the MCUsers, mapped by their user id.
+     */
+    public CompletableFuture<Map<Long, MCUser>> getMCUsersByUserIds(Collection<Long> userIds) {
+        return fetchBulk("api/mc/users-by-user-id", "userIds", userIds, MCUser[].class, MCUser::getUserId);
+    }
+
+    /**
+     * Fetches multiple MCPlayers by UUID with a single request.
+     * UUIDs, which are not tracked by LCLPNetwork, will not be contained in the resulting map.
+     *
+     * @param uuids The UUIDs, with dashes.
+     * @return A completable future that will contain the MCPlayers, mapped by their UUID.
+     */
+    public CompletableFuture<Map<String, MCPlayer>> getMCPlayersByUUIDs(Collection<String> uuids) {
+        return fetchBulk("api/mc/players", "uuids", uuids, MCPlayer[].class, MCPlayer::getUuid);
+    }
+
+    /**
+     * Fetches multiple MCPlayers by MCPlayer id with a single request.
+     * Ids, for which there is no MCPlayer, will not be contained in the resulting map.
+     *
+     * @param playerIds The ids of the MCPlayers.
+     * @return A completable future that will contain the MCPlayers, mapped by their id.
+     */
+    public CompletableFuture<Map<Long, MCPlayer>> getMCPlayersByIds(Collection<Long> playerIds) {
+        return fetchBulk("api/mc/players-by-id", "playerIds", playerIds, MCPlayer[].class, MCPlayer::getId);
+    }
+
+    /**
+     * Evaluates the response of a single-key lookup.
+     * Only 404 Not Found results in null. Other unexpected responses, like rate limits or outages, fail the lookup,
+     * so that they are not cached as absent.
+     */
+    @Nullable
+    protected static <T> T lookupResult(APIResponse resp, Class<T> type) {
+        if(resp.getResponseCode() == 404) return null;
+        if(resp.getResponseCode() != 200) throw new ResponseEvaluationException(resp);
+
+        return resp.getResponseAs(type);
+    }
+
+    protected <K, V> CompletableFuture<Map<K, V>> fetchBulk(String path, String keysProperty, Collection<K> keys,
+                                                          Class<V[]> arrayType, Function<V, K> keyMapper) {
+        RequestBody body = localObject().beginArray(keysProperty).addAll(keys).endArray().createBody();
+
+        return api.post(path, body, arrayType).thenApply(resp -> {
+            if(resp.getResponseCode() != 200) throw new ResponseEvaluationException(resp);
+
+            V[] values = resp.getResponseAs(arrayType);
+            if(values == null) throw new ResponseEvaluationException(resp);
+
+            Map<K, V> mapped = new HashMap<>();
+            for (V value : values) {
+                if (value != null) mapped.put(keyMapper.apply(value), value);
+            }
+
+            return mapped;
         });
     }
 
@@ -141,13 +332,30 @@ public class LCLPMinecraftAPI extends LCLPNetworkAPI {
      *
      * @param uuid The UUID of the MCPlayer.
      * @param modules An optional list of stats modules to fetch. Pass null to receive every module.
+     *                Other modules are not decoded, even if the server sends them.
      * @return A completable future that will contain the MCStats.
      */
     public CompletableFuture<MCStats> getStats(String uuid, @Nullable Iterable<String> modules) {
-        JsonBuilder builder = object().set("uuid", uuid);
-        if(modules != null) builder = builder.beginArray("modules").addAll(modules).endArray();
+        LookupCache<String, MCStats> cache = this.statsCache;
+        if (cache == null) return fetchStats(uuid, modules);
+
+        StringBuilder key = new StringBuilder(uuid);
+        if (modules != null) {
+            key.append('?');
+            modules.forEach(module -> key.append(module).append(','));
+        }
+
+        return cache.get(key.toString(), k -> fetchStats(uuid, modules));
+    }
 
-        return api.post("api/mc/stats", builder.createObject()).thenApply(resp -> {
+    protected CompletableFuture<MCStats> fetchStats(String uuid, @Nullable Iterable<String> modules) {
+        JsonStreamBuilder builder = localObject().set("uuid", uuid);
+        if(modules != null) builder.beginArray("modules").addAll(modules).endArray();
+
+        // only decode the requested modules, even if the server sends more
+        TypeAdapter<MCStats> adapter = modules != null ? MCStats.selectiveAdapter(modules) : null;
+
+        return api.post("api/mc/stats", builder.createBody(), MCStats.class, adapter).thenApply(resp -> {
             if(resp.getResponseCode() != 200) throw new ResponseEvaluationException(resp);
             else return resp.getResponseAs(MCStats.class);
         });
@@ -176,4 +384,47 @@ public class LCLPMinecraftAPI extends LCLPNetworkAPI {
         });
     }
 
+    /**
+     * The batch loaders of the single-key lookups.
+     */
+    protected class Batchers {
+
+        protected final BatchLoader<String, MCUser> mcUserByUUID;
+        protected final BatchLoader<Long, MCUser> mcUserByUserId;
+        protected final BatchLoader<String, MCPlayer> mcPlayerByUUID;
+        protected final BatchLoader<Long, MCPlayer> mcPlayerById;
+
+        protected Batchers(long window, TimeUnit unit, int maxBatchSize) {
+            this.mcUserByUUID = new BatchLoader<>(nullOnNotFound(LCLPMinecraftAPI.this::getMCUsersByUUIDs), window, unit, maxBatchSize);
+            this.mcUserByUserId = new BatchLoader<>(nullOnNotFound(LCLPMinecraftAPI.this::getMCUsersByUserIds), window, unit, maxBatchSize);
+            this.mcPlayerByUUID = new BatchLoader<>(nullOnNotFound(LCLPMinecraftAPI.this::getMCPlayersByUUIDs), window, unit, maxBatchSize);
+            this.mcPlayerById = new BatchLoader<>(nullOnNotFound(LCLPMinecraftAPI.this::getMCPlayersByIds), window, unit, maxBatchSize);
+        }
+
+        /**
+         * Lets every lookup of a batch result in null, if the server answered the bulk request with 404 Not Found.
+         * This matches the single-key lookups, see {@link #lookupResult(APIResponse, Class)}.
+         * Other errors, such as rate limits, outages or connection failures, are passed to every lookup,
+         * so that they are not cached as absent.
+         */
+        protected <K, V> Function<List<K>, CompletableFuture<Map<K, V>>> nullOnNotFound(Function<List<K>, CompletableFuture<Map<K, V>>> bulk) {
+            return keys -> bulk.apply(keys).handle((values, error) -> {
+                if (error == null) return values;
+
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof ResponseEvaluationException && ((ResponseEvaluationException) cause).getResponse().getResponseCode() == 404)
+                    return null;
+
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            });
+        }
+
+        protected void flush() {
+            mcUserByUUID.flush();
+            mcUserByUserId.flush();
+            mcPlayerByUUID.flush();
+            mcPlayerById.flush();
+        }
+    }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+import javax.annotation.Nullable;
+
+/**
+ * Emits JDK Flight Recorder events, so that requests line up with GC pauses and thread stalls in the same recording.
+ * <ul>
+ *     <li><code>work.lclpnet.lclpnetwork.APIRequest</code> is emitted for every request sent by an
+ *     {@link work.lclpnet.lclpnetwork.api.APIAccess}, with path, method, status, bytes and phase timings.</li>
+ *     <li><code>work.lclpnet.lclpnetwork.ModelDecode</code> is emitted whenever a response body is decoded into a model.</li>
+ * </ul>
+ * The events are only emitted, if the runtime provides JFR (JDK 11, or JDK 8u262 and later) and the events are enabled in a running recording.
+ * Otherwise, {@link #beginRequest()} and {@link #beginDecode()} return null and committing does nothing.
+ */
+public final class FlightRecorderEvents {
+
+    private static final Emitter EMITTER = loadEmitter();
+
+    private FlightRecorderEvents() {}
+
+    private static Emitter loadEmitter() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Emitter) Class.forName("work.lclpnet.lclpnetwork.metrics.jfr.JfrEmitter").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return True, if the runtime provides JDK Flight Recorder.
+     */
+    public static boolean isAvailable() {
+        return EMITTER != null;
+    }
+
+    /**
+     * Begins an API request event.
+     *
+     * @return The event, or null if the event is not enabled.
+     */
+    @Nullable
+    public static Object beginRequest() {
+        return EMITTER == null ? null : EMITTER.beginRequest();
+    }
+
+    /**
+     * Commits an event, which was returned by {@link #beginRequest()}.
+     *
+     * @param event The event, may be null.
+     * @param record The measurements of the request.
+     */
+    public static void commitRequest(@Nullable Object event, RequestRecord record) {
+        if (event != null) EMITTER.commitRequest(event, record);
+    }
+
+    /**
+     * Begins a model decode event.
+     *
+     * @return The event, or null if the event is not enabled.
+     */
+    @Nullable
+    public static Object beginDecode() {
+        return EMITTER == null ? null : EMITTER.beginDecode();
+    }
+
+    /**
+     * Commits an event, which was returned by {@link #beginDecode()}.
+     *
+     * @param event The event, may be null.
+     * @param targetClass The class, to which the body was decoded.
+     * @param streamed True, if the model was decoded from the connection stream, so that the duration includes receiving the body.
+     */
+    public static void commitDecode(@Nullable Object event, Class<?> targetClass, boolean streamed) {
+        if (event != null) EMITTER.commitDecode(event, targetClass, streamed);
+    }
+
+    /**
+     * Creates and commits the actual events. The implementation is loaded reflectively, so that this class can be used without JFR.
+     */
+    public interface Emitter {
+
+        @Nullable
+        Object beginRequest();
+
+        void commitRequest(Object event, RequestRecord record);
+
+        @Nullable
+        Object beginDecode();
+
+        void commitDecode(Object event, Class<?> targetClass, boolean streamed);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non-negative values with a fixed relative precision, in the style of HdrHistogram.
+ * Values are counted in log-linear buckets: every power of two is divided into linear sub-buckets,
+ * so that recording is a lock-free increment and the memory use does not depend on the number of values.
+ * <p>
+ * With the default precision of 7 bits, values are reported with a relative error below 1.6%.
+ * Values above the highest trackable value are counted as the highest trackable value.
+ * Reads are not atomic with concurrent recordings; a reading may miss values recorded at the same time.
+ */
+public class Histogram {
+
+    private final int precisionBits;
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final LongAdder count = new LongAdder(), sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Creates a histogram with a precision of 7 bits, which tracks values up to 2<sup>42</sup>
+     * (about 73 minutes, if the values are nanoseconds).
+     */
+    public Histogram() {
+        this(7, 1L << 42);
+    }
+
+    /**
+     * Creates a histogram.
+     *
+     * @param precisionBits The number of bits of precision, from 1 to 16. The relative error is below 2<sup>1-precisionBits</sup>.
+     * @param highestTrackableValue The highest value, which can be recorded exactly.
+     */
+    public Histogram(int precisionBits, long highestTrackableValue) {
+        if (precisionBits < 1 || precisionBits > 16) throw new IllegalArgumentException("precisionBits must be between 1 and 16.");
+        if (highestTrackableValue < 1) throw new IllegalArgumentException("highestTrackableValue must be positive.");
+
+        this.precisionBits = precisionBits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    }
+
+    private int indexOf(long value) {
+        final int linear = 1 << precisionBits;
+        if (value < linear) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (precisionBits - 1);
+        int sub = (int) (value >>> shift);  // between linear / 2 and linear - 1
+        return linear + (shift - 1) * (linear >> 1) + sub - (linear >> 1);
+    }
+
+    /**
+     * @return The highest value, which falls into the same bucket as values of the given index.
+     */
+    private long highestValueOf(int index) {
+        final int linear = 1 << precisionBits, half = linear >> 1;
+        if (index < linear) return index;
+
+        int shift = (index - linear) / half + 1;
+        long sub = half + (index - linear) % half;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     * @param value The value.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        else if (value > highestTrackableValue) value = highestTrackableValue;
+
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The arithmetic mean of the recorded values, or 0 if there are none.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0D : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return The highest recorded value, or 0 if there are none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value, below or at which the given percentage of recorded values lie.
+     *
+     * @param percentile The percentile, from 0 to 100. E.g. 99.9 for the 99.9th percentile.
+     * @return The value at the percentile, or 0 if there are no recorded values.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0L;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        if (total == 0) return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(100D, Math.max(0D, percentile)) / 100D * total));
+        long seen = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValueOf(i), getMax());
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Adds the recorded values of another histogram with the same precision to this histogram.
+     * @param other The other histogram.
+     */
+    public void add(Histogram other) {
+        if (other.precisionBits != precisionBits || other.counts.length() > counts.length())
+            throw new IllegalArgumentException("The histogram precision or range does not match.");
+
+        for (int i = 0; i < other.counts.length(); i++) {
+            long n = other.counts.get(i);
+            if (n != 0) counts.addAndGet(i, n);
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    /**
+     * @return A copy of this histogram, e.g. to export the values of an interval before calling {@link #reset()}.
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram(precisionBits, highestTrackableValue);
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0L);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Histogram{count=%d, mean=%.1f, p50=%d, p99=%d, p99.9=%d, max=%d}",
+                getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+import work.lclpnet.lclpnetwork.api.APIAccess;
+import work.lclpnet.lclpnetwork.api.APIRequest;
+
+/**
+ * Receives an event for every request sent by an {@link APIAccess}.
+ * Listeners are added with {@link APIAccess#addMetricsListener(MetricsListener)}.
+ * <p>
+ * Listeners are called on the threads which send and complete requests, so they should be fast and thread-safe.
+ * Exceptions thrown by listeners are ignored.
+ *
+ * @see RequestMetrics
+ */
+public interface MetricsListener {
+
+    /**
+     * Called before a request is handed to the transport.
+     * Coalesced requests, which share an in-flight request, are not reported.
+     *
+     * @param request The request.
+     */
+    default void requestStarted(APIRequest request) {}
+
+    /**
+     * Called after the transport completed a request, before the response is checked for authentication errors.
+     *
+     * @param record The measurements of the request.
+     */
+    default void requestCompleted(RequestRecord record) {}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+import work.lclpnet.lclpnetwork.api.APIRequest;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default {@link MetricsListener}, which aggregates the requests of every endpoint (request path).
+ * For every endpoint, it keeps a latency {@link Histogram} in nanoseconds, the counts of status codes and failures,
+ * the transferred bytes and the number of requests in flight.
+ * <p>
+ * The metrics can be polled at any time, e.g. by a scheduled task which exports them to a monitoring system.
+ */
+public class RequestMetrics implements MetricsListener {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Override
+    public void requestStarted(APIRequest request) {
+        inFlight.incrementAndGet();
+        endpoint(request.getPath()).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void requestCompleted(RequestRecord record) {
+        inFlight.decrementAndGet();
+        endpoint(record.getPath()).record(record);
+    }
+
+    private Endpoint endpoint(String path) {
+        Endpoint endpoint = endpoints.get(path);
+        if (endpoint == null) endpoint = endpoints.computeIfAbsent(path, Endpoint::new);
+        return endpoint;
+    }
+
+    /**
+     * @param path The request path, e.g. <code>"api/mc/stats"</code>.
+     * @return The metrics of the endpoint, or null if no request was sent to the path yet.
+     */
+    @Nullable
+    public Endpoint getEndpoint(String path) {
+        return endpoints.get(path);
+    }
+
+    /**
+     * @return The metrics of every endpoint to which requests were sent.
+     */
+    @Nonnull
+    public Collection<Endpoint> getEndpoints() {
+        return Collections.unmodifiableCollection(endpoints.values());
+    }
+
+    /**
+     * @return The number of requests of any endpoint which are currently in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Resets the metrics of every endpoint. The in-flight gauges are not affected.
+     */
+    public void reset() {
+        endpoints.values().forEach(Endpoint::reset);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RequestMetrics{inFlight=").append(getInFlight());
+        endpoints.values().stream().sorted(Comparator.comparing(Endpoint::getPath))
+                .forEach(endpoint -> builder.append(", ").append(endpoint));
+        return builder.append('}').toString();
+    }
+
+    /**
+     * The metrics of a single endpoint.
+     */
+    public static class Endpoint {
+
+        private final String path;
+        private final Histogram latency = new Histogram();
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder(), requestBytes = new LongAdder(), responseBytes = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        protected Endpoint(String path) {
+            this.path = path;
+        }
+
+        protected void record(RequestRecord record) {
+            inFlight.decrementAndGet();
+            latency.record(record.getDuration(TimeUnit.NANOSECONDS));
+
+            if (record.getResponse() == null) failures.increment();
+            else statusCounts.computeIfAbsent(record.getStatus(), status -> new LongAdder()).increment();
+
+            if (record.getRequestBytes() > 0) requestBytes.add(record.getRequestBytes());
+            if (record.getResponseBytes() > 0) responseBytes.add(record.getResponseBytes());
+        }
+
+        protected void reset() {
+            latency.reset();
+            statusCounts.values().forEach(LongAdder::reset);
+            failures.reset();
+            requestBytes.reset();
+            responseBytes.reset();
+        }
+
+        /**
+         * @return The request path of this endpoint.
+         */
+        @Nonnull
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return The histogram of the request durations, in nanoseconds.
+         */
+        @Nonnull
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return The number of completed requests, including failed requests.
+         */
+        public long getRequestCount() {
+            return latency.getCount();
+        }
+
+        /**
+         * @param status A HTTP status code.
+         * @return The number of responses with the status code.
+         */
+        public long getStatusCount(int status) {
+            LongAdder count = statusCounts.get(status);
+            return count == null ? 0L : count.sum();
+        }
+
+        /**
+         * @return A snapshot of the number of responses per status code.
+         */
+        @Nonnull
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statusCounts.forEach((status, count) -> {
+                long sum = count.sum();
+                if (sum > 0) counts.put(status, sum);
+            });
+            return counts;
+        }
+
+        /**
+         * @return The number of requests without a response, e.g. because the connection failed.
+         */
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        /**
+         * @return The number of request body bytes sent.
+         */
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        /**
+         * @return The number of response body bytes received over the wire.
+         */
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        /**
+         * @return The number of requests to this endpoint which are currently in flight.
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{requests=%d, failures=%d, status=%s, p50=%dus, p99=%dus, max=%dus, requestBytes=%d, responseBytes=%d, inFlight=%d}",
+                    path, getRequestCount(), getFailureCount(), getStatusCounts(), latency.getValueAtPercentile(50) / 1000,
+                    latency.getValueAtPercentile(99) / 1000, latency.getMax() / 1000, getRequestBytes(), getResponseBytes(), getInFlight());
+        }
+    }
+}
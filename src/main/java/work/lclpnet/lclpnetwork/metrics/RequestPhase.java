@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+/**
+ * The consecutive phases of a request, as measured by {@link RequestTimings}.
+ */
+public enum RequestPhase {
+
+    /**
+     * Waiting for an executor thread, before the transport starts to send the request.
+     */
+    QUEUE,
+    /**
+     * Acquiring a connection: waiting for a connection permit, reusing a kept-alive connection or
+     * opening a new one, including the TCP connect and the TLS handshake.
+     */
+    CONNECT,
+    /**
+     * Writing the request body.
+     */
+    WRITE,
+    /**
+     * Waiting for the response status, after the request was written (time to first byte).
+     */
+    WAIT,
+    /**
+     * Waiting for the response body to be received.
+     */
+    READ,
+    /**
+     * Decompressing and decoding the response body into a model, while it is being read.
+     */
+    DECODE
+}
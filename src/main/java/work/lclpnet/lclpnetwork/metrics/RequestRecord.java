@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+import work.lclpnet.lclpnetwork.api.APIRequest;
+import work.lclpnet.lclpnetwork.api.APIResponse;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements of a single completed request.
+ */
+public class RequestRecord {
+
+    private final APIRequest request;
+    private final APIResponse response;
+    private final Throwable error;
+    private final long durationNanos;
+    private final long requestBytes, responseBytes;
+    private final RequestTimings timings;
+
+    public RequestRecord(APIRequest request, @Nullable APIResponse response, @Nullable Throwable error, long durationNanos,
+                         long requestBytes, long responseBytes) {
+        this(request, response, error, durationNanos, requestBytes, responseBytes, new RequestTimings(0L));
+    }
+
+    public RequestRecord(APIRequest request, @Nullable APIResponse response, @Nullable Throwable error, long durationNanos,
+                         long requestBytes, long responseBytes, RequestTimings timings) {
+        this.request = Objects.requireNonNull(request);
+        this.response = response;
+        this.error = error;
+        this.durationNanos = durationNanos;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.timings = Objects.requireNonNull(timings);
+    }
+
+    /**
+     * @return The request.
+     */
+    @Nonnull
+    public APIRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return The request path, which identifies the endpoint. E.g. <code>"api/mc/stats"</code>.
+     */
+    @Nonnull
+    public String getPath() {
+        return request.getPath();
+    }
+
+    /**
+     * @return The response, or null if the request failed.
+     */
+    @Nullable
+    public APIResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return The HTTP status code of the response, or 0 if the request failed.
+     */
+    public int getStatus() {
+        return response == null ? 0 : response.getResponseCode();
+    }
+
+    /**
+     * @return The reason, why the request failed, or null if there is a response.
+     */
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @param unit The unit of the result.
+     * @return The time from handing the request to the transport until the response was read, including the wait for an executor thread.
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The number of request body bytes, or -1 if unknown.
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * @return The number of response body bytes received over the wire, or -1 if unknown.
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Gets the time the request spent in each phase, so that slow requests can be attributed to e.g. connection setup or decoding.
+     * Phases which the transport did not record are zero.
+     *
+     * @return The phase timings of the request.
+     */
+    @Nonnull
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RequestRecord{path='%s', status=%d, duration=%dus, requestBytes=%d, responseBytes=%d, timings=%s}",
+                getPath(), getStatus(), getDuration(TimeUnit.MICROSECONDS), requestBytes, responseBytes, timings);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time a single request spent in each {@link RequestPhase}.
+ * Timings are recorded by the transport while it executes the request, so they are not thread-safe.
+ * Transports, which do not record timings, leave every phase at zero.
+ */
+public class RequestTimings {
+
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    private final long startNanos;
+    private final long[] nanos = new long[PHASES.length];
+
+    /**
+     * @param startNanos The {@link System#nanoTime()} at which the transport started to execute the request.
+     */
+    public RequestTimings(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} at which the transport started to execute the request.
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Adds time to a phase.
+     *
+     * @param phase The phase.
+     * @param nanos The nanoseconds spent in the phase.
+     */
+    public void record(RequestPhase phase, long nanos) {
+        if (nanos > 0) this.nanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * @param phase The phase.
+     * @param unit The unit of the result.
+     * @return The time spent in the phase.
+     */
+    public long get(RequestPhase phase, TimeUnit unit) {
+        return unit.convert(nanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit The unit of the result.
+     * @return The time spent in all phases.
+     */
+    public long getTotal(TimeUnit unit) {
+        long total = 0L;
+        for (long phase : nanos) total += phase;
+        return unit.convert(total, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The phase in which the request spent the most time.
+     */
+    public RequestPhase getSlowestPhase() {
+        int slowest = 0;
+        for (int i = 1; i < nanos.length; i++) {
+            if (nanos[i] > nanos[slowest]) slowest = i;
+        }
+        return PHASES[slowest];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RequestTimings{");
+        for (int i = 0; i < PHASES.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(PHASES[i].name().toLowerCase(Locale.ROOT)).append('=').append(nanos[i] / 1000).append("us");
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A request sent by an {@link work.lclpnet.lclpnetwork.api.APIAccess}.
+ * The event starts on the thread which sent the request and is committed on the thread which completed it.
+ */
+@Name("work.lclpnet.lclpnetwork.APIRequest")
+@Label("API Request")
+@Category({"LCLPNetwork", "API"})
+@Description("A request to the LCLPNetwork API")
+@StackTrace(false)
+public class APIRequestEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    @Description("The HTTP status code, or 0 if the request failed")
+    int status;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @Description("The response body bytes received over the wire, or -1 if unknown")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Error")
+    String error;
+
+    @Label("Queue")
+    @Timespan
+    long queue;
+
+    @Label("Connect")
+    @Timespan
+    long connect;
+
+    @Label("Write")
+    @Timespan
+    long write;
+
+    @Label("Wait")
+    @Description("Time to first byte")
+    @Timespan
+    long wait;
+
+    @Label("Read")
+    @Timespan
+    long read;
+
+    @Label("Decode")
+    @Timespan
+    long decode;
+}
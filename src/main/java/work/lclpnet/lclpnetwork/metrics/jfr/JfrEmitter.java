@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics.jfr;
+
+import jdk.jfr.EventType;
+import work.lclpnet.lclpnetwork.metrics.FlightRecorderEvents;
+import work.lclpnet.lclpnetwork.metrics.RequestPhase;
+import work.lclpnet.lclpnetwork.metrics.RequestRecord;
+import work.lclpnet.lclpnetwork.metrics.RequestTimings;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JFR implementation of {@link FlightRecorderEvents.Emitter}.
+ * Events are only allocated while they are enabled in a recording, so disabled events cost a single check.
+ */
+public class JfrEmitter implements FlightRecorderEvents.Emitter {
+
+    private static final EventType REQUEST_TYPE = EventType.getEventType(APIRequestEvent.class);
+    private static final EventType DECODE_TYPE = EventType.getEventType(ModelDecodeEvent.class);
+
+    @Nullable
+    @Override
+    public Object beginRequest() {
+        if (!REQUEST_TYPE.isEnabled()) return null;
+
+        APIRequestEvent event = new APIRequestEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitRequest(Object o, RequestRecord record) {
+        APIRequestEvent event = (APIRequestEvent) o;
+        event.end();
+        if (!event.shouldCommit()) return;
+
+        event.path = record.getPath();
+        event.method = record.getRequest().getMethod();
+        event.status = record.getStatus();
+        event.requestBytes = record.getRequestBytes();
+        event.responseBytes = record.getResponseBytes();
+
+        Throwable error = record.getError();
+        if (error != null) event.error = error.toString();
+
+        RequestTimings timings = record.getTimings();
+        event.queue = timings.get(RequestPhase.QUEUE, TimeUnit.NANOSECONDS);
+        event.connect = timings.get(RequestPhase.CONNECT, TimeUnit.NANOSECONDS);
+        event.write = timings.get(RequestPhase.WRITE, TimeUnit.NANOSECONDS);
+        event.wait = timings.get(RequestPhase.WAIT, TimeUnit.NANOSECONDS);
+        event.read = timings.get(RequestPhase.READ, TimeUnit.NANOSECONDS);
+        event.decode = timings.get(RequestPhase.DECODE, TimeUnit.NANOSECONDS);
+
+        event.commit();
+    }
+
+    @Nullable
+    @Override
+    public Object beginDecode() {
+        if (!DECODE_TYPE.isEnabled()) return null;
+
+        ModelDecodeEvent event = new ModelDecodeEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitDecode(Object o, Class<?> targetClass, boolean streamed) {
+        ModelDecodeEvent event = (ModelDecodeEvent) o;
+        event.end();
+        if (!event.shouldCommit()) return;
+
+        event.targetClass = targetClass;
+        event.streamed = streamed;
+        event.commit();
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.metrics.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The decoding of a response body into a model.
+ */
+@Name("work.lclpnet.lclpnetwork.ModelDecode")
+@Label("Model Decode")
+@Category({"LCLPNetwork", "API"})
+@Description("A response body decoded into a model")
+@StackTrace(false)
+public class ModelDecodeEvent extends Event {
+
+    @Label("Target Class")
+    Class<?> targetClass;
+
+    @Label("Streamed")
+    @Description("True, if the model was decoded from the connection stream, so that the duration includes receiving the body")
+    boolean streamed;
+}
@@ -6,14 +6,21 @@
 
 package work.lclpnet.lclpnetwork.model;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import work.lclpnet.lclpnetwork.api.APIAccess;
 import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.CompletableFuture;
 
+import static work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory.*;
+
 /**
  * Represents a minecraft player who has played once on a LCLPNetwork minecraft server.
  */
@@ -61,4 +68,55 @@ public class MCPlayer extends JsonSerializable {
         return instance.getMCUserByUUID(this.uuid).thenApply(mcUser -> this.mcUser = mcUser);
     }
 
+    /**
+     * Streaming adapter for {@link MCPlayer}, see {@link ModelTypeAdapterFactory}.
+     */
+    static class Adapter extends TypeAdapter<MCPlayer> {
+
+        private final TypeAdapter<Date> dateAdapter;
+        private final TypeAdapter<MCUser> mcUserAdapter;
+
+        Adapter(Gson gson) {
+            this.dateAdapter = gson.getAdapter(Date.class);
+            this.mcUserAdapter = gson.getAdapter(MCUser.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, MCPlayer value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.id);
+            out.name("uuid").value(value.uuid);
+            out.name("points").value(value.points);
+            out.name("coins").value(value.coins);
+            out.name("language").value(value.language);
+            out.name("last_seen");
+            dateAdapter.write(out, value.lastSeen);
+            out.name("mc_user");
+            mcUserAdapter.write(out, value.mcUser);
+            out.endObject();
+        }
+
+        @Override
+        public MCPlayer read(JsonReader in) throws IOException {
+            MCPlayer player = new MCPlayer();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": player.id = nextLong(in, player.id); break;
+                    case "uuid": player.uuid = nextString(in); break;
+                    case "points": player.points = nextInt(in, player.points); break;
+                    case "coins": player.coins = nextInt(in, player.coins); break;
+                    case "language": player.language = nextString(in); break;
+                    case "last_seen": player.lastSeen = dateAdapter.read(in); break;
+                    case "mc_user": player.mcUser = mcUserAdapter.read(in); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return player;
+        }
+    }
+
 }
@@ -6,15 +6,25 @@
 
 package work.lclpnet.lclpnetwork.model;
 
-import com.google.gson.JsonElement;
+import com.google.gson.*;
 import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import work.lclpnet.lclpnetwork.util.FixedLayoutDateAdapter;
 import work.lclpnet.lclpnetwork.util.GsonAccess;
 
 import javax.annotation.Nullable;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+import static work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory.*;
 
 /**
  * Represents the LCLPNetwork minecraft statistics of a {@link MCPlayer}.
@@ -26,6 +36,7 @@ public class MCStats extends JsonSerializable {
     private int schemaVersion;
     @Expose
     private List<Entry> stats;
+    private transient volatile Map<String, Entry> moduleIndex = null;
 
     public int getSchemaVersion() {
         return schemaVersion;
@@ -35,9 +46,338 @@ public class MCStats extends JsonSerializable {
         return stats;
     }
 
+    /**
+     * Get a module by its name.
+     * Modules are indexed when the stats are decoded, so the lookup does not depend on the number of modules.
+     *
+     * @param name The name of the module.
+     * @return The module, or null if there is no module with that name.
+     */
     @Nullable
     public Entry getModule(String name) {
-        return stats.stream().filter(e -> name.equals(e.name)).findFirst().orElse(null);
+        Map<String, Entry> index = moduleIndex;
+        if (index == null) moduleIndex = index = index(stats);
+
+        return index.get(name);
+    }
+
+    /**
+     * Get a module or one of its child entries by its path.
+     * The path consists of the entry names, separated by slashes, e.g. <code>"bedwars/solo"</code>.
+     *
+     * @param path The path of the entry.
+     * @return The entry, or null if there is no entry at that path.
+     */
+    @Nullable
+    public Entry getEntry(String path) {
+        int end = path.indexOf('/');
+        if (end == -1) return getModule(path);
+
+        Entry module = getModule(path.substring(0, end));
+        return module == null ? null : module.getEntry(path, end + 1);
+    }
+
+    /**
+     * Get a property value by its path.
+     * The path consists of the entry names, followed by the property name, separated by slashes, e.g. <code>"bedwars/wins"</code>.
+     *
+     * @param path The path of the property.
+     * @return The property value, or null if there is no property at that path.
+     */
+    @Nullable
+    public Value get(String path) {
+        int end = path.lastIndexOf('/');
+        if (end == -1) return null;
+
+        Entry entry = getEntry(path.substring(0, end));
+        return entry == null ? null : entry.getProperty(path.substring(end + 1));
+    }
+
+    /**
+     * Creates an index of entries by name. If multiple entries share a name, the first one is indexed.
+     */
+    private static Map<String, Entry> index(@Nullable List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) return Collections.emptyMap();
+
+        Map<String, Entry> index = new HashMap<>();
+        for (Entry entry : entries) {
+            if (entry != null && entry.name != null) index.putIfAbsent(entry.name, entry);
+        }
+
+        return index;
+    }
+
+    /**
+     * Streaming adapter for {@link MCStats}, see {@link ModelTypeAdapterFactory}.
+     */
+    static class Adapter extends TypeAdapter<MCStats> {
+
+        private final TypeAdapter<Entry> entryAdapter;
+
+        Adapter(Gson gson) {
+            this.entryAdapter = gson.getAdapter(Entry.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, MCStats value) throws IOException {
+            out.beginObject();
+            out.name("schema_version").value(value.schemaVersion);
+            out.name("stats");
+            writeList(out, value.stats, entryAdapter);
+            out.endObject();
+        }
+
+        @Override
+        public MCStats read(JsonReader in) throws IOException {
+            MCStats stats = new MCStats();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "schema_version": stats.schemaVersion = nextInt(in, stats.schemaVersion); break;
+                    case "stats": stats.stats = readList(in, entryAdapter); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+
+            stats.moduleIndex = index(stats.stats);
+
+            return stats;
+        }
+    }
+
+    /**
+     * Create an adapter, which only decodes the given modules or paths, using the {@link GsonAccess#getGson()} Gson instance.
+     * See {@link #selectiveAdapter(Iterable, Gson)}.
+     *
+     * @param paths The module names or paths to decode.
+     * @return A new adapter.
+     */
+    public static TypeAdapter<MCStats> selectiveAdapter(Iterable<String> paths) {
+        return selectiveAdapter(paths, GsonAccess.getGson());
+    }
+
+    /**
+     * Create an adapter, which only decodes the given modules or paths.
+     * Every other module, child entry or property is skipped, without creating objects for it.
+     * <p>
+     * A path consists of names separated by slashes. The first name is the name of a module, the following names
+     * select child entries or properties, e.g. <code>"bedwars"</code> decodes the whole bedwars module, while
+     * <code>"bedwars/wins"</code> decodes the bedwars module with only its wins property or child entry.
+     *
+     * @param paths The module names or paths to decode.
+     * @param gson The Gson instance, which provides the adapters for the decoded entries and values.
+     * @return A new adapter.
+     */
+    public static TypeAdapter<MCStats> selectiveAdapter(Iterable<String> paths, Gson gson) {
+        return new SelectiveAdapter(gson, Selection.of(paths)).nullSafe();
+    }
+
+    /**
+     * A tree of selected names. A selection without children selects everything.
+     */
+    private static class Selection {
+
+        private static final Selection ALL = new Selection(null);
+
+        private final Map<String, Selection> children;
+
+        private Selection(@Nullable Map<String, Selection> children) {
+            this.children = children;
+        }
+
+        boolean isAll() {
+            return children == null;
+        }
+
+        @Nullable
+        Selection get(@Nullable String name) {
+            if (children == null) return ALL;
+            return name == null ? null : children.get(name);
+        }
+
+        static Selection of(Iterable<String> paths) {
+            Selection root = new Selection(new HashMap<>());
+
+            for (String path : paths) {
+                Selection selection = root;
+                String[] names = path.split("/");
+
+                for (int i = 0; i < names.length && !selection.isAll(); i++) {
+                    boolean last = i == names.length - 1;
+                    Selection current = selection;
+                    selection = current.children.compute(names[i], (name, child) -> {
+                        if (last || (child != null && child.isAll())) return ALL;
+                        return child != null ? child : new Selection(new HashMap<>());
+                    });
+                }
+            }
+
+            return root;
+        }
+    }
+
+    /**
+     * Decodes only the selected entries of a {@link MCStats}.
+     */
+    private static class SelectiveAdapter extends TypeAdapter<MCStats> {
+
+        private final Selection selection;
+        private final Adapter writer;
+        private final TypeAdapter<Entry> entryAdapter;
+        private final TypeAdapter<EntryType> typeAdapter;
+        private final TypeAdapter<Icon> iconAdapter;
+        private final TypeAdapter<Value> valueAdapter;
+        private final TypeAdapter<JsonElement> elementAdapter;
+
+        SelectiveAdapter(Gson gson, Selection selection) {
+            this.selection = selection;
+            // not gson.getAdapter(MCStats.class), which may be this adapter, if it is registered in the same Gson instance
+            this.writer = new Adapter(gson);
+            this.entryAdapter = gson.getAdapter(Entry.class);
+            this.typeAdapter = gson.getAdapter(EntryType.class);
+            this.iconAdapter = gson.getAdapter(Icon.class);
+            this.valueAdapter = gson.getAdapter(Value.class);
+            this.elementAdapter = gson.getAdapter(JsonElement.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, MCStats value) throws IOException {
+            // the decoded stats only contain the selected entries, so they are written like regular stats
+            writer.write(out, value);
+        }
+
+        @Override
+        public MCStats read(JsonReader in) throws IOException {
+            MCStats stats = new MCStats();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "schema_version": stats.schemaVersion = nextInt(in, stats.schemaVersion); break;
+                    case "stats": stats.stats = readEntries(in, selection); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+
+            stats.moduleIndex = index(stats.stats);
+
+            return stats;
+        }
+
+        private List<Entry> readEntries(JsonReader in, Selection parent) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                Entry entry = readEntry(in, parent);
+                if (entry != null) entries.add(entry);
+            }
+            in.endArray();
+
+            return entries;
+        }
+
+        /**
+         * @return The entry, or null if it is not selected.
+         */
+        @Nullable
+        private Entry readEntry(JsonReader in, Selection parent) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Entry entry = new Entry();
+            Selection selection = null;
+            Map<String, JsonElement> pending = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String property = in.nextName();
+                switch (property) {
+                    case "type": entry.type = typeAdapter.read(in); break;
+                    case "title": entry.title = nextString(in); break;
+                    case "name":
+                        entry.name = nextString(in);
+                        selection = parent.get(entry.name);
+                        if (selection == null) {
+                            // not selected, skip the remaining properties
+                            while (in.hasNext()) {
+                                in.nextName();
+                                in.skipValue();
+                            }
+                            in.endObject();
+                            return null;
+                        }
+                        break;
+                    case "icon":
+                    case "properties":
+                    case "extra":
+                    case "children":
+                        if (selection != null) readProperty(in, property, entry, selection);
+                        else {
+                            // the name is not known yet, so it is unclear whether the entry is selected
+                            if (pending == null) pending = new HashMap<>();
+                            pending.put(property, elementAdapter.read(in));
+                        }
+                        break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (selection == null && (selection = parent.get(entry.name)) == null) return null;
+
+            if (pending != null) {
+                for (Map.Entry<String, JsonElement> property : pending.entrySet()) {
+                    JsonReader reader = new JsonReader(new StringReader(property.getValue().toString()));
+                    readProperty(reader, property.getKey(), entry, selection);
+                }
+            }
+
+            entry.childIndex = index(entry.children);
+
+            return entry;
+        }
+
+        private void readProperty(JsonReader in, String property, Entry entry, Selection selection) throws IOException {
+            switch (property) {
+                case "icon": entry.icon = iconAdapter.read(in); break;
+                case "extra": entry.extra = readMap(in, elementAdapter); break;
+                case "properties":
+                    entry.properties = selection.isAll() ? readMap(in, valueAdapter) : readProperties(in, selection);
+                    break;
+                case "children":
+                    entry.children = selection.isAll() ? readList(in, entryAdapter) : readEntries(in, selection);
+                    break;
+                default: in.skipValue();
+            }
+        }
+
+        private Map<String, Value> readProperties(JsonReader in, Selection selection) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Map<String, Value> properties = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (selection.get(name) != null) properties.put(name, valueAdapter.read(in));
+                else in.skipValue();
+            }
+            in.endObject();
+
+            return properties;
+        }
     }
 
     /**
@@ -59,6 +399,7 @@ public class MCStats extends JsonSerializable {
         private Map<String, JsonElement> extra;
         @Expose
         private List<Entry> children;
+        private transient volatile Map<String, Entry> childIndex = null;
 
         public EntryType getType() {
             return type;
@@ -87,6 +428,118 @@ public class MCStats extends JsonSerializable {
         public List<Entry> getChildren() {
             return children;
         }
+
+        /**
+         * Get a child entry by its name.
+         *
+         * @param name The name of the child.
+         * @return The child entry, or null if there is no child with that name.
+         */
+        @Nullable
+        public Entry getChild(String name) {
+            Map<String, Entry> index = childIndex;
+            if (index == null) childIndex = index = index(children);
+
+            return index.get(name);
+        }
+
+        /**
+         * Get a descendant entry by its path, relative to this entry, e.g. <code>"solo"</code>.
+         *
+         * @param path The path of the entry, with names separated by slashes.
+         * @return The entry, or null if there is no entry at that path.
+         */
+        @Nullable
+        public Entry getEntry(String path) {
+            return getEntry(path, 0);
+        }
+
+        @Nullable
+        private Entry getEntry(String path, int start) {
+            Entry entry = this;
+
+            while (entry != null) {
+                int end = path.indexOf('/', start);
+                if (end == -1) return entry.getChild(path.substring(start));
+
+                entry = entry.getChild(path.substring(start, end));
+                start = end + 1;
+            }
+
+            return null;
+        }
+
+        /**
+         * Get a property value of this entry.
+         *
+         * @param name The name of the property.
+         * @return The property value, or null if there is no such property.
+         */
+        @Nullable
+        public Value getProperty(String name) {
+            return properties == null ? null : properties.get(name);
+        }
+
+        /**
+         * Streaming adapter for {@link Entry}, see {@link ModelTypeAdapterFactory}.
+         */
+        static class Adapter extends TypeAdapter<Entry> {
+
+            private final TypeAdapter<Entry> childAdapter = nullSafe();
+            private final TypeAdapter<EntryType> typeAdapter;
+            private final TypeAdapter<Icon> iconAdapter;
+            private final TypeAdapter<Value> valueAdapter;
+            private final TypeAdapter<JsonElement> elementAdapter;
+
+            Adapter(Gson gson) {
+                this.typeAdapter = gson.getAdapter(EntryType.class);
+                this.iconAdapter = gson.getAdapter(Icon.class);
+                this.valueAdapter = gson.getAdapter(Value.class);
+                this.elementAdapter = gson.getAdapter(JsonElement.class);
+            }
+
+            @Override
+            public void write(JsonWriter out, Entry value) throws IOException {
+                out.beginObject();
+                out.name("type");
+                typeAdapter.write(out, value.type);
+                out.name("name").value(value.name);
+                out.name("title").value(value.title);
+                out.name("icon");
+                iconAdapter.write(out, value.icon);
+                out.name("properties");
+                writeMap(out, value.properties, valueAdapter);
+                out.name("extra");
+                writeMap(out, value.extra, elementAdapter);
+                out.name("children");
+                writeList(out, value.children, childAdapter);
+                out.endObject();
+            }
+
+            @Override
+            public Entry read(JsonReader in) throws IOException {
+                Entry entry = new Entry();
+
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "type": entry.type = typeAdapter.read(in); break;
+                        case "name": entry.name = nextString(in); break;
+                        case "title": entry.title = nextString(in); break;
+                        case "icon": entry.icon = iconAdapter.read(in); break;
+                        case "properties": entry.properties = readMap(in, valueAdapter); break;
+                        case "extra": entry.extra = readMap(in, elementAdapter); break;
+                        case "children": entry.children = readList(in, childAdapter); break;
+                        default: in.skipValue();
+                    }
+                }
+                in.endObject();
+
+                entry.childIndex = index(entry.children);
+
+                return entry;
+            }
+        }
     }
 
     /**
@@ -105,34 +558,83 @@ public class MCStats extends JsonSerializable {
 
     /**
      * Represents the value of an {@link Entry}.
+     * Values are always (de-)serialized by their {@link Adapter}, even by Gson instances without the model adapters,
+     * because the compact representation is not visible to reflective serialization.
      */
+    @JsonAdapter(Value.AdapterFactory.class)
     public static class Value extends JsonSerializable {
 
+        private static final byte UNRESOLVED = 0, NULL = 1, NUMBER = 2, DATE = 3;
+        private static final FixedLayoutDateAdapter.UTC DATE_LAYOUT = new FixedLayoutDateAdapter.UTC();
+
         @Expose
         private ValueType type;
+        /**
+         * The raw value. Only kept, if the value could not be stored as {@link #primitive}.
+         */
         @Expose
         private JsonElement value;
+        /**
+         * Integral numbers or epoch milliseconds of dates, depending on {@link #kind}.
+         */
+        private transient long primitive;
+        private transient byte kind = UNRESOLVED;
 
         public ValueType getType() {
             return type;
         }
 
+        /**
+         * Get the raw value.
+         * Values decoded by the model adapter are stored compactly, so this method creates a new element for them.
+         * Dates are re-created in the "yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'" layout, with millisecond precision.
+         *
+         * @return The raw value.
+         */
         public JsonElement getValue() {
-            return value;
+            switch (kind) {
+                case NULL: return JsonNull.INSTANCE;
+                case NUMBER: return new JsonPrimitive(primitive);
+                case DATE: return new JsonPrimitive(DATE_LAYOUT.format(primitive));
+                default: return value;
+            }
         }
 
         public boolean isNull() {
-            return value == null || value.isJsonNull();
+            return kind == NULL || (kind == UNRESOLVED && (value == null || value.isJsonNull()));
         }
 
         public int getAsInt() {
-            return isNull() ? 0 : value.getAsInt();
+            return (int) getAsLong();
+        }
+
+        /**
+         * @return The value as long, or 0 if the value is null.
+         */
+        public long getAsLong() {
+            if (kind == NUMBER) return primitive;
+            if (kind == DATE) throw new NumberFormatException("Value is a date");
+            return isNull() ? 0 : value.getAsLong();
         }
 
         public Date getAsDate() {
+            if (kind == DATE) return new Date(primitive);
             return isNull() ? null : GsonAccess.getGson().fromJson(value, Date.class);
         }
 
+        /**
+         * Get the value as date, without creating a {@link Date} object.
+         *
+         * @return The milliseconds since the epoch, or 0 if the value is null.
+         */
+        public long getAsEpochMillis() {
+            if (kind == DATE) return primitive;
+            if (isNull()) return 0L;
+
+            Date date = getAsDate();
+            return date == null ? 0L : date.getTime();
+        }
+
         public String getValueAsFormattedString() {
             if(type == ValueType.INTEGER) return String.valueOf(getAsInt());
             else if(type == ValueType.DATE) {
@@ -142,6 +644,116 @@ public class MCStats extends JsonSerializable {
             else throw new IllegalStateException(String.format("Unimplemented type '%s'.", type));
         }
 
+        /**
+         * Provides the {@link Adapter} to Gson instances, which do not know the model adapters.
+         */
+        static class AdapterFactory implements TypeAdapterFactory {
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+                if (type.getRawType() != Value.class) return null;
+                return (TypeAdapter<T>) new Adapter(gson).nullSafe();
+            }
+        }
+
+        /**
+         * Streaming adapter for {@link Value}, see {@link ModelTypeAdapterFactory}.
+         * Integral numbers and dates are stored as primitives, instead of keeping their JSON elements.
+         */
+        static class Adapter extends TypeAdapter<Value> {
+
+            private final TypeAdapter<ValueType> typeAdapter;
+            private final TypeAdapter<JsonElement> elementAdapter;
+            private final FixedLayoutDateAdapter.UTC dateLayout;
+
+            Adapter(Gson gson) {
+                this.typeAdapter = gson.getAdapter(ValueType.class);
+                this.elementAdapter = gson.getAdapter(JsonElement.class);
+
+                // dates can only be stored compactly, if they can be parsed without a Date object.
+                // other layouts are kept as text, because getValue() re-creates compact dates in the UTC layout
+                TypeAdapter<Date> dateAdapter = gson.getAdapter(Date.class);
+                this.dateLayout = dateAdapter instanceof FixedLayoutDateAdapter.UTC ? (FixedLayoutDateAdapter.UTC) dateAdapter : null;
+            }
+
+            @Override
+            public void write(JsonWriter out, Value value) throws IOException {
+                out.beginObject();
+                out.name("type");
+                typeAdapter.write(out, value.type);
+                out.name("value");
+                switch (value.kind) {
+                    case NULL: out.nullValue(); break;
+                    case NUMBER: out.value(value.primitive); break;
+                    // compact dates were parsed in the UTC layout, see the constructor
+                    case DATE: out.value(DATE_LAYOUT.format(value.primitive)); break;
+                    default: elementAdapter.write(out, value.value);
+                }
+                out.endObject();
+            }
+
+            @Override
+            public Value read(JsonReader in) throws IOException {
+                Value value = new Value();
+                String text = null;
+                boolean number = false;
+
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "type": value.type = typeAdapter.read(in); break;
+                        case "value":
+                            JsonToken token = in.peek();
+                            value.kind = UNRESOLVED;
+                            value.value = null;
+                            text = null;
+
+                            if (token == JsonToken.NULL) {
+                                in.nextNull();
+                                value.kind = NULL;
+                            } else if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+                                // resolved after the type is known, which may follow the value
+                                number = token == JsonToken.NUMBER;
+                                text = in.nextString();
+                            } else {
+                                value.value = elementAdapter.read(in);
+                            }
+                            break;
+                        default: in.skipValue();
+                    }
+                }
+                in.endObject();
+
+                if (text != null) resolve(value, text, number);
+
+                return value;
+            }
+
+            private void resolve(Value value, String text, boolean number) {
+                if (number) {
+                    try {
+                        value.primitive = Long.parseLong(text);
+                        value.kind = NUMBER;
+                        return;
+                    } catch (NumberFormatException ignored) {}
+
+                    value.value = new JsonPrimitive(new BigDecimal(text));
+                    return;
+                }
+
+                if (value.type == ValueType.DATE && dateLayout != null) {
+                    try {
+                        value.primitive = dateLayout.parse(text);
+                        value.kind = DATE;
+                        return;
+                    } catch (DateTimeParseException ignored) {}
+                }
+
+                value.value = new JsonPrimitive(text);
+            }
+        }
+
     }
 
     /**
@@ -167,6 +779,33 @@ public class MCStats extends JsonSerializable {
         public String getMinecraft() {
             return minecraft;
         }
+
+        /**
+         * Streaming adapter for {@link Icon}, see {@link ModelTypeAdapterFactory}.
+         */
+        static class Adapter extends TypeAdapter<Icon> {
+
+            @Override
+            public void write(JsonWriter out, Icon value) throws IOException {
+                out.beginObject();
+                out.name("minecraft").value(value.minecraft);
+                out.endObject();
+            }
+
+            @Override
+            public Icon read(JsonReader in) throws IOException {
+                Icon icon = new Icon();
+
+                in.beginObject();
+                while (in.hasNext()) {
+                    if ("minecraft".equals(in.nextName())) icon.minecraft = nextString(in);
+                    else in.skipValue();
+                }
+                in.endObject();
+
+                return icon;
+            }
+        }
     }
 
 }
@@ -6,14 +6,22 @@
 
 package work.lclpnet.lclpnetwork.model;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import work.lclpnet.lclpnetwork.api.APIAccess;
 import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.CompletableFuture;
 
+import static work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory.nextLong;
+import static work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory.nextString;
+
 /**
  * Represents a Minecraft LCLPNetwork user, who linked his minecraft account with his LCLPNetwork account.
  */
@@ -69,4 +77,57 @@ public class MCUser extends JsonSerializable {
         return instance.getMCPlayerByUUID(this.uuid).thenApply(mcPlayer -> this.player = mcPlayer);
     }
 
+    /**
+     * Streaming adapter for {@link MCUser}, see {@link ModelTypeAdapterFactory}.
+     */
+    static class Adapter extends TypeAdapter<MCUser> {
+
+        private final TypeAdapter<Date> dateAdapter;
+        private final TypeAdapter<User> userAdapter;
+        private final TypeAdapter<MCPlayer> playerAdapter;
+
+        Adapter(Gson gson) {
+            this.dateAdapter = gson.getAdapter(Date.class);
+            this.userAdapter = gson.getAdapter(User.class);
+            this.playerAdapter = gson.getAdapter(MCPlayer.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, MCUser value) throws IOException {
+            out.beginObject();
+            out.name("user_id").value(value.userId);
+            out.name("uuid").value(value.uuid);
+            out.name("created_at");
+            dateAdapter.write(out, value.createdAt);
+            out.name("updated_at");
+            dateAdapter.write(out, value.updatedAt);
+            out.name("user");
+            userAdapter.write(out, value.user);
+            out.name("player");
+            playerAdapter.write(out, value.player);
+            out.endObject();
+        }
+
+        @Override
+        public MCUser read(JsonReader in) throws IOException {
+            MCUser mcUser = new MCUser();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "user_id": mcUser.userId = nextLong(in, mcUser.userId); break;
+                    case "uuid": mcUser.uuid = nextString(in); break;
+                    case "created_at": mcUser.createdAt = dateAdapter.read(in); break;
+                    case "updated_at": mcUser.updatedAt = dateAdapter.read(in); break;
+                    case "user": mcUser.user = userAdapter.read(in); break;
+                    case "player": mcUser.player = playerAdapter.read(in); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return mcUser;
+        }
+    }
+
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Provides hand-written streaming type adapters for the model classes, so that they are not decoded by reflection.
+ * The adapters produce the same results as Gson's reflective adapter with <code>excludeFieldsWithoutExposeAnnotation()</code>.
+ * Subclasses of the model classes are not handled by this factory.
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        final Class<? super T> rawType = type.getRawType();
+        final TypeAdapter<?> adapter;
+
+        if (rawType == User.class) adapter = new User.Adapter(gson);
+        else if (rawType == MCUser.class) adapter = new MCUser.Adapter(gson);
+        else if (rawType == MCPlayer.class) adapter = new MCPlayer.Adapter(gson);
+        else if (rawType == MCStats.class) adapter = new MCStats.Adapter(gson);
+        else if (rawType == MCStats.Entry.class) adapter = new MCStats.Entry.Adapter(gson);
+        else if (rawType == MCStats.Value.class) adapter = new MCStats.Value.Adapter(gson);
+        else if (rawType == MCStats.Icon.class) adapter = new MCStats.Icon.Adapter();
+        else return null;
+
+        return (TypeAdapter<T>) adapter.nullSafe();
+    }
+
+    /* helpers for the adapters */
+
+    static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) return Boolean.toString(in.nextBoolean());
+        return in.nextString();
+    }
+
+    static long nextLong(JsonReader in, long fallback) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return fallback;
+        }
+        return in.nextLong();
+    }
+
+    static int nextInt(JsonReader in, int fallback) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return fallback;
+        }
+        return in.nextInt();
+    }
+
+    static <V> List<V> readList(JsonReader in, TypeAdapter<V> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<V> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) list.add(adapter.read(in));
+        in.endArray();
+
+        return list;
+    }
+
+    static <V> Map<String, V> readMap(JsonReader in, TypeAdapter<V> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Map<String, V> map = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) map.put(in.nextName(), adapter.read(in));
+        in.endObject();
+
+        return map;
+    }
+
+    static <V> void writeList(JsonWriter out, List<V> list, TypeAdapter<V> adapter) throws IOException {
+        if (list == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginArray();
+        for (V value : list) adapter.write(out, value);
+        out.endArray();
+    }
+
+    static <V> void writeMap(JsonWriter out, Map<String, V> map, TypeAdapter<V> adapter) throws IOException {
+        if (map == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        for (Map.Entry<String, V> entry : map.entrySet()) {
+            out.name(entry.getKey());
+            adapter.write(out, entry.getValue());
+        }
+        out.endObject();
+    }
+}
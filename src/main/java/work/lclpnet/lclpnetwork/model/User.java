@@ -6,13 +6,21 @@
 
 package work.lclpnet.lclpnetwork.model;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
-import work.lclpnet.lclpnetwork.util.JsonDateAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import work.lclpnet.lclpnetwork.util.FixedLayoutDateAdapter;
 
+import java.io.IOException;
 import java.util.Date;
 
+import static work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory.nextLong;
+import static work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory.nextString;
+
 /**
  * Represents a LCLPNetwork user.
  */
@@ -35,7 +43,7 @@ public class User extends JsonSerializable {
 	private Date updatedAt;
 	@Expose
 	@SerializedName("name_changed_at")
-	@JsonAdapter(JsonDateAdapter.YMDHMS.class)
+	@JsonAdapter(FixedLayoutDateAdapter.YMDHMS.class)
 	private Date nameChangedAt;
 
 	public long getId() {
@@ -66,4 +74,54 @@ public class User extends JsonSerializable {
 		return updatedAt;
 	}
 
+	/**
+	 * Streaming adapter for {@link User}, see {@link ModelTypeAdapterFactory}.
+	 */
+	static class Adapter extends TypeAdapter<User> {
+
+		private final TypeAdapter<Date> dateAdapter;
+		private final TypeAdapter<Date> nameChangedAtAdapter = new FixedLayoutDateAdapter.YMDHMS();
+
+		Adapter(Gson gson) {
+			this.dateAdapter = gson.getAdapter(Date.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, User value) throws IOException {
+			// email and email_verified_at are not serialized
+			out.beginObject();
+			out.name("id").value(value.id);
+			out.name("name").value(value.name);
+			out.name("created_at");
+			dateAdapter.write(out, value.createdAt);
+			out.name("updated_at");
+			dateAdapter.write(out, value.updatedAt);
+			out.name("name_changed_at");
+			nameChangedAtAdapter.write(out, value.nameChangedAt);
+			out.endObject();
+		}
+
+		@Override
+		public User read(JsonReader in) throws IOException {
+			User user = new User();
+
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "id": user.id = nextLong(in, user.id); break;
+					case "name": user.name = nextString(in); break;
+					case "email": user.email = nextString(in); break;
+					case "email_verified_at": user.emailVerifiedAt = dateAdapter.read(in); break;
+					case "created_at": user.createdAt = dateAdapter.read(in); break;
+					case "updated_at": user.updatedAt = dateAdapter.read(in); break;
+					case "name_changed_at": user.nameChangedAt = nameChangedAtAdapter.read(in); break;
+					default: in.skipValue();
+				}
+			}
+			in.endObject();
+
+			return user;
+		}
+	}
+
 }
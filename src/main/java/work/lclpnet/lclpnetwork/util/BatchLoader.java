@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.util;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Collects single-key lookups over a short time window and loads them with a single bulk request.
+ * A batch is dispatched when the window has elapsed, or as soon as it reaches the maximum batch size.
+ * Keys which are requested multiple times within the same batch are only loaded once.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ * @author LCLP
+ */
+public class BatchLoader<K, V> {
+
+    private static volatile ScheduledExecutorService defaultScheduler = null;
+
+    protected final Function<List<K>, CompletableFuture<Map<K, V>>> batchFunction;
+    protected final long windowNanos;
+    protected final int maxBatchSize;
+    protected final ScheduledExecutorService scheduler;
+    private final AtomicLong dispatchedBatches = new AtomicLong(), loadedKeys = new AtomicLong();
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush = null;
+
+    /**
+     * Construct a new BatchLoader that uses a shared daemon thread to dispatch batches.
+     *
+     * @param batchFunction A function that loads all values for a list of keys. Keys that are missing in the resulting map will be loaded as null.
+     * @param window The time to wait for further keys after the first key of a batch was requested.
+     * @param unit The unit of the window.
+     * @param maxBatchSize The maximum number of keys per batch.
+     */
+    public BatchLoader(Function<List<K>, CompletableFuture<Map<K, V>>> batchFunction, long window, TimeUnit unit, int maxBatchSize) {
+        this(batchFunction, window, unit, maxBatchSize, getDefaultScheduler());
+    }
+
+    /**
+     * Construct a new BatchLoader.
+     *
+     * @param batchFunction A function that loads all values for a list of keys. Keys that are missing in the resulting map will be loaded as null.
+     * @param window The time to wait for further keys after the first key of a batch was requested.
+     * @param unit The unit of the window.
+     * @param maxBatchSize The maximum number of keys per batch.
+     * @param scheduler The scheduler used to dispatch batches after the window has elapsed.
+     */
+    public BatchLoader(Function<List<K>, CompletableFuture<Map<K, V>>> batchFunction, long window, TimeUnit unit, int maxBatchSize,
+                       ScheduledExecutorService scheduler) {
+        if (window < 0) throw new IllegalArgumentException("window must not be negative.");
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be positive.");
+        this.batchFunction = Objects.requireNonNull(batchFunction);
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Objects.requireNonNull(scheduler);
+    }
+
+    /**
+     * Load the value of a key with the next batch.
+     *
+     * @param key The key to load.
+     * @return A completable future that will contain the value, or null if the batch did not contain a value for the key.
+     */
+    public CompletableFuture<V> load(@Nonnull K key) {
+        Objects.requireNonNull(key);
+
+        final CompletableFuture<V> future;
+        Map<K, CompletableFuture<V>> batch = null;
+
+        synchronized (this) {
+            future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+
+            if (pending.size() >= maxBatchSize) batch = takeBatch();
+            else if (scheduledFlush == null)
+                scheduledFlush = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (batch != null) dispatch(batch);
+
+        return future.thenApply(Function.identity());  // callers must not be able to complete the shared future
+    }
+
+    /**
+     * Dispatch the current batch immediately, without waiting for the window to elapse.
+     */
+    public void flush() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = takeBatch();
+        }
+
+        dispatch(batch);
+    }
+
+    private Map<K, CompletableFuture<V>> takeBatch() {
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        return batch;
+    }
+
+    protected void dispatch(Map<K, CompletableFuture<V>> batch) {
+        dispatchedBatches.incrementAndGet();
+        loadedKeys.addAndGet(batch.size());
+
+        CompletableFuture<Map<K, V>> result;
+        try {
+            result = batchFunction.apply(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException e) {
+            batch.values().forEach(f -> f.completeExceptionally(e));
+            return;
+        }
+
+        result.whenComplete((values, error) -> {
+            if (error != null) batch.values().forEach(f -> f.completeExceptionally(error));
+            else if (values == null) batch.values().forEach(f -> f.complete(null));
+            else batch.forEach((key, f) -> f.complete(values.get(key)));
+        });
+    }
+
+    /**
+     * @return The number of batches that have been dispatched.
+     */
+    public long getDispatchedBatches() {
+        return dispatchedBatches.get();
+    }
+
+    /**
+     * @return The number of distinct keys that have been dispatched within batches.
+     */
+    public long getLoadedKeys() {
+        return loadedKeys.get();
+    }
+
+    private static ScheduledExecutorService getDefaultScheduler() {
+        if (defaultScheduler == null) {
+            synchronized (BatchLoader.class) {
+                if (defaultScheduler == null) {
+                    defaultScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "LCLPNetworkAPI Batch Loader");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return defaultScheduler;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} that counts the bytes read from the underlying stream.
+ * Optionally, it also measures the time spent waiting for the underlying stream.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final boolean timed;
+    private long count = 0L;
+    private long readNanos = 0L;
+
+    public CountingInputStream(InputStream in) {
+        this(in, false);
+    }
+
+    /**
+     * @param in The underlying stream.
+     * @param timed True, if the time spent in reads of the underlying stream should be measured.
+     */
+    public CountingInputStream(InputStream in, boolean timed) {
+        super(in);
+        this.timed = timed;
+    }
+
+    /**
+     * @return The number of bytes read so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The nanoseconds spent in reads of the underlying stream, or 0 if this stream is not timed.
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = timed ? System.nanoTime() : 0L;
+        int b = super.read();
+        if (timed) readNanos += System.nanoTime() - start;
+        if (b != -1) count++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = timed ? System.nanoTime() : 0L;
+        int read = super.read(b, off, len);
+        if (timed) readNanos += System.nanoTime() - start;
+        if (read > 0) count += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = timed ? System.nanoTime() : 0L;
+        long skipped = super.skip(n);
+        if (timed) readNanos += System.nanoTime() - start;
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.util;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * A date adapter for a fixed text layout, which parses and formats by hand instead of using a {@link java.text.DateFormat}.
+ * Instances are immutable and can be shared by any number of threads.
+ */
+public abstract class FixedLayoutDateAdapter extends TypeAdapter<Date> {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        if(value == null) out.nullValue();
+        else out.value(format(value.getTime()));
+    }
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        try {
+            return new Date(parse(in.nextString()));
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    /**
+     * Parse a date.
+     *
+     * @param text The date text.
+     * @return The milliseconds since the epoch.
+     * @throws DateTimeParseException If the text does not match the layout of this adapter.
+     */
+    public abstract long parse(String text) throws DateTimeParseException;
+
+    /**
+     * Format a date.
+     *
+     * @param epochMillis The milliseconds since the epoch.
+     * @return The date text.
+     */
+    @Nonnull
+    public abstract String format(long epochMillis);
+
+    /**
+     * A date adapter for the "yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'" layout in UTC, as used by the LCLPNetwork API.
+     * Unlike the deprecated {@link UTCDateAdapter}, the six fractional digits are treated as microseconds, which are truncated to milliseconds.
+     * Other ISO-8601 instants, e.g. with a different number of fractional digits, are accepted as well.
+     */
+    public static class UTC extends FixedLayoutDateAdapter {
+
+        @Override
+        public long parse(String text) throws DateTimeParseException {
+            final int length = text.length();
+
+            if (length >= 20 && text.charAt(length - 1) == 'Z' && text.charAt(10) == 'T') {
+                long millis = parseDateTime(text, 'T', 0);
+
+                if (length == 20) return millis;
+
+                if (text.charAt(19) == '.' && length <= 30) {
+                    // fractional seconds with up to nine digits
+                    int fraction = 0, digits = length - 21;
+                    for (int i = 20; i < length - 1; i++) fraction = fraction * 10 + digit(text, i);
+                    for (int i = digits; i < 9; i++) fraction *= 10;
+
+                    if (digits > 0) return millis + fraction / 1_000_000;
+                }
+            }
+
+            try {
+                return Instant.parse(text).toEpochMilli();
+            } catch (ArithmeticException e) {
+                throw new DateTimeParseException(e.getMessage(), text, 0, e);
+            }
+        }
+
+        @Nonnull
+        @Override
+        public String format(long epochMillis) {
+            long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+            int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+            char[] chars = new char[27];
+            if (!formatDateTime(chars, days, millisOfDay / 1000, 'T'))
+                return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(epochMillis));
+
+            chars[19] = '.';
+            writeDigits(chars, 20, millisOfDay % 1000, 3);
+            chars[23] = chars[24] = chars[25] = '0';
+            chars[26] = 'Z';
+
+            return new String(chars);
+        }
+    }
+
+    /**
+     * A date adapter for the "year-month-day hour:minute:second" (yyyy-MM-dd HH:mm:ss) layout.
+     * By default, dates are interpreted in the time zone of the system, like {@link JsonDateAdapter.YMDHMS} did.
+     */
+    public static class YMDHMS extends FixedLayoutDateAdapter {
+
+        private final ZoneId zone;
+        private final ZoneRules rules;
+        private final int fixedOffsetSeconds;
+
+        public YMDHMS() {
+            this(ZoneId.systemDefault());
+        }
+
+        public YMDHMS(ZoneId zone) {
+            this.zone = Objects.requireNonNull(zone);
+            this.rules = zone.getRules();
+            this.fixedOffsetSeconds = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH).getTotalSeconds() : Integer.MIN_VALUE;
+        }
+
+        /**
+         * @return The time zone in which dates are interpreted.
+         */
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public long parse(String text) throws DateTimeParseException {
+            if (text.length() != 19) throw new DateTimeParseException("Expected the layout yyyy-MM-dd HH:mm:ss", text, 0);
+
+            long localMillis = parseDateTime(text, ' ', 0);
+            if (fixedOffsetSeconds != Integer.MIN_VALUE) return localMillis - fixedOffsetSeconds * 1000L;
+
+            LocalDateTime local = LocalDateTime.ofEpochSecond(localMillis / 1000, 0, ZoneOffset.UTC);
+            return local.atZone(zone).toInstant().toEpochMilli();
+        }
+
+        @Nonnull
+        @Override
+        public String format(long epochMillis) {
+            int offsetSeconds = fixedOffsetSeconds != Integer.MIN_VALUE ? fixedOffsetSeconds
+                    : rules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds();
+
+            long local = Math.floorDiv(epochMillis, 1000L) + offsetSeconds;
+            long days = Math.floorDiv(local, 86_400L);
+            int secondOfDay = (int) Math.floorMod(local, 86_400L);
+
+            char[] chars = new char[19];
+            if (!formatDateTime(chars, days, secondOfDay, ' '))
+                throw new DateTimeException("Year out of range for the layout yyyy-MM-dd HH:mm:ss");
+
+            return new String(chars);
+        }
+    }
+
+    /* layout helpers */
+
+    /**
+     * Parses "yyyy-MM-dd?HH:mm:ss" at the given position, as if it was in UTC.
+     */
+    private static long parseDateTime(String text, char separator, int pos) throws DateTimeParseException {
+        if (text.length() < pos + 19 || text.charAt(pos + 4) != '-' || text.charAt(pos + 7) != '-'
+                || text.charAt(pos + 10) != separator || text.charAt(pos + 13) != ':' || text.charAt(pos + 16) != ':')
+            throw new DateTimeParseException("Unexpected date layout", text, pos);
+
+        int year = number(text, pos, 4), month = number(text, pos + 5, 2), day = number(text, pos + 8, 2);
+        int hour = number(text, pos + 11, 2), minute = number(text, pos + 14, 2), second = number(text, pos + 17, 2);
+
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+                || hour > 23 || minute > 59 || second > 59)
+            throw new DateTimeParseException("Invalid date", text, pos);
+
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L;
+    }
+
+    private static int number(String text, int pos, int digits) {
+        int value = 0;
+        for (int i = pos; i < pos + digits; i++) value = value * 10 + digit(text, i);
+        return value;
+    }
+
+    private static int digit(String text, int pos) {
+        char c = text.charAt(pos);
+        if (c < '0' || c > '9') throw new DateTimeParseException("Expected a digit", text, pos);
+        return c - '0';
+    }
+
+    /**
+     * Writes "yyyy-MM-dd?HH:mm:ss" to the first 19 chars.
+     * @return False, if the year can not be written with four digits.
+     */
+    private static boolean formatDateTime(char[] chars, long epochDays, int secondOfDay, char separator) {
+        // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = epochDays + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int doe = (int) (z - era * 146_097);
+        int yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) return false;
+
+        writeDigits(chars, 0, (int) year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, month, 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, day, 2);
+        chars[10] = separator;
+        writeDigits(chars, 11, secondOfDay / 3600, 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, secondOfDay / 60 % 60, 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, secondOfDay % 60, 2);
+
+        return true;
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468;
+    }
+
+    private static void writeDigits(char[] chars, int pos, int value, int digits) {
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
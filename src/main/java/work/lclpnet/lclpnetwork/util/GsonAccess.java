@@ -8,6 +8,7 @@ package work.lclpnet.lclpnetwork.util;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import work.lclpnet.lclpnetwork.model.ModelTypeAdapterFactory;
 
 import java.util.Date;
 
@@ -26,6 +27,7 @@ public class GsonAccess {
     public static GsonBuilder createGsonBuilder() {
         return new GsonBuilder()
                 .excludeFieldsWithoutExposeAnnotation()
-                .registerTypeAdapter(Date.class, new UTCDateAdapter());
+                .registerTypeAdapter(Date.class, new FixedLayoutDateAdapter.UTC())
+                .registerTypeAdapterFactory(new ModelTypeAdapterFactory());
     }
 }
@@ -18,6 +18,11 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Objects;
 
+/**
+ * @deprecated {@link SimpleDateFormat} is not thread-safe, but instances of this adapter share a single one between threads.
+ * Use {@link FixedLayoutDateAdapter} instead.
+ */
+@Deprecated
 public class JsonDateAdapter extends TypeAdapter<Date> {
 
     private final SimpleDateFormat format;
@@ -44,7 +49,9 @@ public class JsonDateAdapter extends TypeAdapter<Date> {
 
     /**
      * A date adapter that will serialize / deserialize with the "year-month-day hour:minute:second" (yyyy-MM-dd HH:mm:ss) format.
+     * @deprecated Use {@link FixedLayoutDateAdapter.YMDHMS} instead.
      */
+    @Deprecated
     public static class YMDHMS extends JsonDateAdapter {
 
         public YMDHMS() {
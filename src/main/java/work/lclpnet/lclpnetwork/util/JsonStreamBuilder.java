@@ -0,0 +1,572 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.lclpnetwork.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import work.lclpnet.lclpnetwork.api.RequestBody;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A builder that writes JSON objects or arrays directly as UTF-8 encoded bytes, without creating a JSON tree first.
+ * Unlike {@link JsonBuilder}, child objects and arrays are written by the same builder instance.
+ * Strings, numbers and booleans are written directly, every other value is serialized using Gson.
+ *
+ * <p>Builders can be reset and reused. {@link #localObject()} and {@link #localArray()} return a builder,
+ * which is reused by the current thread. Such a builder has to be finished,
+ * before one of those methods is called again on the same thread.</p>
+ * @author LCLP
+ */
+public class JsonStreamBuilder {
+
+    private static final ThreadLocal<JsonStreamBuilder> LOCAL = ThreadLocal.withInitial(() -> new JsonStreamBuilder(null));
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII),
+            TRUE = "true".getBytes(StandardCharsets.US_ASCII),
+            FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte EMPTY_OBJECT = 1, NONEMPTY_OBJECT = 2, EMPTY_ARRAY = 3, NONEMPTY_ARRAY = 4;
+
+    protected final Gson gson;
+    private byte[] buf = new byte[256];
+    private int count = 0;
+    private byte[] stack = new byte[8];
+    private int depth = 0;
+    private boolean finished = false;
+
+    /**
+     * @param gson The Gson instance that should be used to serialize values of other types,
+     *             or null to use {@link GsonAccess#getGson()}.
+     */
+    protected JsonStreamBuilder(@Nullable Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * Discards everything written so far and begins a new root JsonObject.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder resetObject() {
+        reset();
+        return open('{', EMPTY_OBJECT);
+    }
+
+    /**
+     * Discards everything written so far and begins a new root JsonArray.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder resetArray() {
+        reset();
+        return open('[', EMPTY_ARRAY);
+    }
+
+    protected void reset() {
+        if (buf.length > MAX_RETAINED_SIZE) buf = new byte[256];
+        count = 0;
+        depth = 0;
+        finished = false;
+    }
+
+    /**
+     * Begin a new JsonObject.
+     * This method should be used inside JsonArrays.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder beginObject() {
+        beforeElement();
+        return open('{', EMPTY_OBJECT);
+    }
+
+    /**
+     * Begin a new JsonObject.
+     * This method should be used inside JsonObjects.
+     * @param key The key of the JsonObject.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder beginObject(String key) {
+        writeKey(key);
+        return open('{', EMPTY_OBJECT);
+    }
+
+    /**
+     * End the current JsonObject.
+     * This should only be called for child JsonObjects.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder endObject() {
+        ensureObject();
+        if (depth == 1) throw new IllegalStateException("endObject() might only be called for child objects.");
+        return close('}');
+    }
+
+    /**
+     * Begin a new JsonArray.
+     * This method should be used inside JsonArrays.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder beginArray() {
+        beforeElement();
+        return open('[', EMPTY_ARRAY);
+    }
+
+    /**
+     * Begin a new JsonArray.
+     * This method should be used inside JsonObjects.
+     * @param key The key of the JsonArray.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder beginArray(String key) {
+        writeKey(key);
+        return open('[', EMPTY_ARRAY);
+    }
+
+    /**
+     * End the current JsonArray.
+     * This should only be called for child JsonArrays.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder endArray() {
+        ensureArray();
+        if (depth == 1) throw new IllegalStateException("endArray() might only be called for child arrays.");
+        return close(']');
+    }
+
+    /**
+     * Sets a property of the current JsonObject.
+     *
+     * @param key The key of the property.
+     * @param value The value of the property.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder set(String key, @Nullable String value) {
+        writeKey(key);
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Sets a property of the current JsonObject.
+     *
+     * @param key The key of the property.
+     * @param value The value of the property.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder set(String key, long value) {
+        writeKey(key);
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Sets a property of the current JsonObject.
+     *
+     * @param key The key of the property.
+     * @param value The value of the property. Must be finite.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder set(String key, double value) {
+        writeKey(key);
+        writeDouble(value);
+        return this;
+    }
+
+    /**
+     * Sets a property of the current JsonObject.
+     *
+     * @param key The key of the property.
+     * @param value The value of the property.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder set(String key, boolean value) {
+        writeKey(key);
+        write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Sets a property of the current JsonObject.
+     *
+     * @param key The key of the property.
+     * @param value The value of the property.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder set(String key, @Nullable Object value) {
+        writeKey(key);
+        writeValue(value);
+        return this;
+    }
+
+    /**
+     * Adds an element to the current JsonArray.
+     *
+     * @param element The element to add.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder add(@Nullable String element) {
+        beforeElement();
+        writeString(element);
+        return this;
+    }
+
+    /**
+     * Adds an element to the current JsonArray.
+     *
+     * @param element The element to add.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder add(long element) {
+        beforeElement();
+        writeLong(element);
+        return this;
+    }
+
+    /**
+     * Adds an element to the current JsonArray.
+     *
+     * @param element The element to add. Must be finite.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder add(double element) {
+        beforeElement();
+        writeDouble(element);
+        return this;
+    }
+
+    /**
+     * Adds an element to the current JsonArray.
+     *
+     * @param element The element to add.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder add(boolean element) {
+        beforeElement();
+        write(element ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Adds an element to the current JsonArray.
+     *
+     * @param element The element to add.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder add(@Nullable Object element) {
+        beforeElement();
+        writeValue(element);
+        return this;
+    }
+
+    /**
+     * Adds all the provided elements to the current JsonArray.
+     *
+     * @param elements A list of elements to add.
+     * @return The same builder.
+     */
+    public JsonStreamBuilder addAll(@Nullable Iterable<?> elements) {
+        ensureArray();
+        if (elements != null) {
+            for (Object element : elements) add(element);
+        }
+        return this;
+    }
+
+    /**
+     * Finishes the root JsonObject or JsonArray and creates a request body out of this builder.
+     * The builder may be reused afterwards.
+     *
+     * @return A request body containing the JSON written by this builder.
+     */
+    public RequestBody createBody() {
+        return RequestBody.ofBytes(toByteArray());
+    }
+
+    /**
+     * Finishes the root JsonObject or JsonArray and copies the UTF-8 encoded JSON text.
+     *
+     * @return The UTF-8 encoded JSON text.
+     */
+    public byte[] toByteArray() {
+        finish();
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Finishes the root JsonObject or JsonArray and writes the UTF-8 encoded JSON text to an output stream.
+     *
+     * @param out The output stream to write to. It will not be closed.
+     * @throws IOException If there was an I/O error.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        finish();
+        out.write(buf, 0, count);
+    }
+
+    /**
+     * @return The number of bytes written so far.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finishes the root JsonObject or JsonArray and decodes the JSON text.
+     *
+     * @return The JSON text.
+     */
+    @Override
+    public String toString() {
+        finish();
+        return new String(buf, 0, count, StandardCharsets.UTF_8);
+    }
+
+    protected void finish() {
+        if (finished) return;
+        if (depth != 1) throw new IllegalStateException("There are unclosed child objects or arrays.");
+
+        close(stack[0] <= NONEMPTY_OBJECT ? '}' : ']');
+        finished = true;
+    }
+
+    protected void ensureObject() {
+        ensureWritable();
+        if (stack[depth - 1] > NONEMPTY_OBJECT) throw new IllegalStateException("Current type is not object.");
+    }
+
+    protected void ensureArray() {
+        ensureWritable();
+        if (stack[depth - 1] < EMPTY_ARRAY) throw new IllegalStateException("Current type is not array.");
+    }
+
+    private void ensureWritable() {
+        if (finished || depth == 0) throw new IllegalStateException("Builder is already finished.");
+    }
+
+    private JsonStreamBuilder open(char bracket, byte type) {
+        if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = type;
+        write((byte) bracket);
+        return this;
+    }
+
+    private JsonStreamBuilder close(char bracket) {
+        depth--;
+        write((byte) bracket);
+        return this;
+    }
+
+    private void writeKey(String key) {
+        if (key == null) throw new IllegalArgumentException("key must not be null on objects.");
+        ensureObject();
+
+        if (stack[depth - 1] == NONEMPTY_OBJECT) write((byte) ',');
+        else stack[depth - 1] = NONEMPTY_OBJECT;
+
+        writeString(key);
+        write((byte) ':');
+    }
+
+    private void beforeElement() {
+        ensureArray();
+
+        if (stack[depth - 1] == NONEMPTY_ARRAY) write((byte) ',');
+        else stack[depth - 1] = NONEMPTY_ARRAY;
+    }
+
+    private void writeValue(@Nullable Object value) {
+        if (value == null) write(NULL);
+        else if (value instanceof String) writeString((String) value);
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            writeLong(((Number) value).longValue());
+        else if (value instanceof Double || value instanceof Float) writeDouble(((Number) value).doubleValue());
+        else if (value instanceof Boolean) write((Boolean) value ? TRUE : FALSE);
+        else if (value instanceof JsonElement) writeRaw(value.toString());
+        else writeRaw((gson != null ? gson : GsonAccess.getGson()).toJson(value));
+    }
+
+    private void writeRaw(String json) {
+        writeUtf8(json, 0, json.length());
+    }
+
+    private void writeString(@Nullable String value) {
+        if (value == null) {
+            write(NULL);
+            return;
+        }
+
+        write((byte) '"');
+
+        final int length = value.length();
+        int start = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') continue;
+
+            writeUtf8(value, start, i);
+            start = i + 1;
+
+            switch (c) {
+                case '"': write((byte) '\\'); write((byte) '"'); break;
+                case '\\': write((byte) '\\'); write((byte) '\\'); break;
+                case '\n': write((byte) '\\'); write((byte) 'n'); break;
+                case '\r': write((byte) '\\'); write((byte) 'r'); break;
+                case '\t': write((byte) '\\'); write((byte) 't'); break;
+                default:
+                    ensureCapacity(6);
+                    buf[count++] = '\\';
+                    buf[count++] = 'u';
+                    buf[count++] = HEX[(c >> 12) & 0xf];
+                    buf[count++] = HEX[(c >> 8) & 0xf];
+                    buf[count++] = HEX[(c >> 4) & 0xf];
+                    buf[count++] = HEX[c & 0xf];
+            }
+        }
+
+        writeUtf8(value, start, length);
+        write((byte) '"');
+    }
+
+    private void writeUtf8(String s, int from, int to) {
+        ensureCapacity((to - from) * 3);
+
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xc0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[count++] = (byte) (0xf0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buf[count++] = '?';  // unpaired surrogate, same replacement as String#getBytes
+            } else {
+                buf[count++] = (byte) (0xe0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(20);
+
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+
+        int pos = count + digits;
+        count = pos;
+        do {
+            buf[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+
+        if (value == (long) value && Math.abs(value) < 1e7 && (value != 0 || 1 / value > 0)) {
+            // same output as Double#toString, e.g. "3.0"
+            writeLong((long) value);
+            write((byte) '.');
+            write((byte) '0');
+        } else {
+            writeRaw(Double.toString(value));
+        }
+    }
+
+    private void write(byte b) {
+        ensureCapacity(1);
+        buf[count++] = b;
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (count + additional > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + additional));
+    }
+
+    /* static methods */
+
+    /**
+     * Create a new JsonObject stream builder using the {@link GsonAccess#getGson()} Gson instance for non-primitive values.
+     * @return A new JsonObject stream builder.
+     */
+    public static JsonStreamBuilder object() {
+        return new JsonStreamBuilder(null).resetObject();
+    }
+
+    /**
+     * Create a new JsonObject stream builder using a custom Gson instance for non-primitive values.
+     * @param gson A Gson instance that should be used for serialization.
+     * @return A new JsonObject stream builder.
+     */
+    public static JsonStreamBuilder object(Gson gson) {
+        return new JsonStreamBuilder(gson).resetObject();
+    }
+
+    /**
+     * Create a new JsonArray stream builder using the {@link GsonAccess#getGson()} Gson instance for non-primitive values.
+     * @return A new JsonArray stream builder.
+     */
+    public static JsonStreamBuilder array() {
+        return new JsonStreamBuilder(null).resetArray();
+    }
+
+    /**
+     * Create a new JsonArray stream builder using a custom Gson instance for non-primitive values.
+     * @param gson A Gson instance that should be used for serialization.
+     * @return A new JsonArray stream builder.
+     */
+    public static JsonStreamBuilder array(Gson gson) {
+        return new JsonStreamBuilder(gson).resetArray();
+    }
+
+    /**
+     * Get the JsonObject stream builder of the current thread.
+     * The builder is reset and reused by every call of this method and {@link #localArray()} on the same thread.
+     * @return The reset JsonObject stream builder of the current thread.
+     */
+    public static JsonStreamBuilder localObject() {
+        return LOCAL.get().resetObject();
+    }
+
+    /**
+     * Get the JsonArray stream builder of the current thread.
+     * The builder is reset and reused by every call of this method and {@link #localObject()} on the same thread.
+     * @return The reset JsonArray stream builder of the current thread.
+     */
+    public static JsonStreamBuilder localArray() {
+        return LOCAL.get().resetArray();
+    }
+
+}
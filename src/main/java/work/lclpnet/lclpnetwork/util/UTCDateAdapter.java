@@ -15,6 +15,12 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
 
+/**
+ * @deprecated This adapter shares a single {@link SimpleDateFormat} between threads, which is not thread-safe.
+ * It also parses the microseconds of the "SSSSSS" pattern as milliseconds.
+ * Use {@link FixedLayoutDateAdapter.UTC} instead.
+ */
+@Deprecated
 public class UTCDateAdapter implements JsonSerializer<Date>, JsonDeserializer<Date> {
 
     private final DateFormat format;
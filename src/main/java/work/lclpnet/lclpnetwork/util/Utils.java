@@ -6,11 +6,13 @@
 
 package work.lclpnet.lclpnetwork.util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import javax.annotation.Nullable;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Common utilities.
@@ -46,4 +48,70 @@ public class Utils {
             out.write(buffer, 0, read);
     }
 
+    /**
+     * Reads and discards all remaining bytes of an {@link InputStream}.
+     *
+     * @param in Any input.
+     * @throws IOException If there was an error reading the input.
+     */
+    public static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[256];
+
+        //noinspection StatementWithEmptyBody
+        while (in.read(buffer, 0, buffer.length) != -1);
+    }
+
+    /**
+     * Wraps an {@link InputStream} so that it is decompressed while it is read, according to a HTTP Content-Encoding.
+     * Supported encodings are "gzip" and "deflate". Both zlib-wrapped and raw deflate streams are accepted.
+     * Empty inputs stay empty, even if they are declared to be encoded.
+     *
+     * @param in The compressed input.
+     * @param contentEncoding The value of the Content-Encoding header, or null if the input is not encoded.
+     * @return A stream of the decompressed bytes.
+     * @throws IOException If the compression header could not be read or the encoding is not supported.
+     */
+    public static InputStream decompress(InputStream in, @Nullable String contentEncoding) throws IOException {
+        if (contentEncoding == null) return in;
+
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        switch (encoding) {
+            case "":
+            case "identity":
+                return in;
+            case "gzip":
+            case "x-gzip":
+            case "deflate":
+                break;
+            default:
+                throw new IOException(String.format("Unsupported content encoding '%s'.", contentEncoding));
+        }
+
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        int cmf = pushback.read(), flg = pushback.read();
+        if (flg != -1) pushback.unread(flg);
+        if (cmf != -1) pushback.unread(cmf);
+
+        if (cmf == -1) return pushback;  // e.g. a 204 or 304 response, which declares its encoding but has no body
+
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(pushback);
+            case "deflate":
+                // RFC 1950 header: compression method 8 and a header checksum that is a multiple of 31
+                boolean zlib = flg != -1 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+                Inflater inflater = new Inflater(!zlib);
+                return new InflaterInputStream(pushback, inflater) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inflater.end();  // a custom inflater is not released by InflaterInputStream itself
+                    }
+                };
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.api.*;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static work.lclpnet.lclpnetwork.util.JsonBuilder.object;
+
+public class APIAccessTests {
+
+    @Test
+    void coalesceIdenticalRequests() {
+        PendingTransport transport = new PendingTransport();
+        APIAccess access = new APIAccess();
+        access.setTransport(transport);
+        access.setRequestCoalescing(true);
+
+        CompletableFuture<APIResponse> first = access.post("api/mc/player", object().set("uuid", "a").createObject());
+        CompletableFuture<APIResponse> second = access.post("api/mc/player", object().set("uuid", "a").createObject());
+        CompletableFuture<APIResponse> other = access.post("api/mc/player", object().set("uuid", "b").createObject());
+
+        assertEquals(2, transport.pending.size());
+
+        transport.pending.forEach(f -> f.complete(new APIResponse(200, "{}", null)));
+
+        assertSame(first.join(), second.join());
+        assertNotSame(first.join(), other.join());
+
+        RequestCoalescer coalescer = access.getRequestCoalescer();
+        assertNotNull(coalescer);
+        assertEquals(2, coalescer.getSentRequests());
+        assertEquals(1, coalescer.getCoalescedRequests());
+        assertEquals(0, coalescer.getInFlightRequests());
+
+        // the first request is finished, so this one must be sent again
+        access.post("api/mc/player", object().set("uuid", "a").createObject());
+        assertEquals(3, transport.pending.size());
+    }
+
+    @Test
+    void coalesceByResponseType() {
+        PendingTransport transport = new PendingTransport();
+        APIAccess access = new APIAccess();
+        access.setTransport(transport);
+        access.setRequestCoalescing(true);
+
+        JsonObject body = object().set("uuid", "a").createObject();
+        access.post("api/mc/player", body);
+        access.post("api/mc/player", body, MCPlayer.class);
+        access.post("api/mc/player", RequestBody.of(body), MCPlayer.class, new Gson().getAdapter(MCPlayer.class));
+        access.post("api/mc/player", body, MCPlayer.class);
+
+        // raw, typed and custom adapter callers must not share a response
+        assertEquals(3, transport.pending.size());
+        assertEquals(1, Objects.requireNonNull(access.getRequestCoalescer()).getCoalescedRequests());
+    }
+
+    @Test
+    void requestKeys() {
+        APIAccess access = new APIAccess();
+        APIRequest request = access.createRequest("api/mc/player", "POST", object().set("uuid", "a").createObject());
+        TypeAdapter<MCPlayer> adapter = new Gson().getAdapter(MCPlayer.class);
+
+        assertSame(request.getKey(), request.getKey());
+        assertSame(request.getKey(), request.withHeader("If-None-Match", "\"v1\"").getKey());
+
+        APIRequest typed = request.withResponseType(MCPlayer.class);
+        assertNotEquals(request.getKey(), typed.getKey());
+        assertEquals(typed.getKey(), request.withResponseType(MCPlayer.class).getKey());
+
+        APIRequest adapted = request.withResponseType(MCPlayer.class, adapter);
+        assertNotEquals(typed.getKey(), adapted.getKey());
+        assertEquals(adapted.getKey(), request.withResponseType(MCPlayer.class, adapter).getKey());
+        assertNotEquals(adapted.getKey(), request.withResponseType(MCPlayer.class, new Gson().getAdapter(MCPlayer.class)).getKey());
+    }
+
+    @Test
+    void conditionalRequests() {
+        List<APIRequest> requests = new ArrayList<>();
+        APIAccess access = new APIAccess();
+        access.setTransport(request -> {
+            requests.add(request);
+            if ("\"v1\"".equals(request.getHeaders().get("If-None-Match"))) return new APIResponse(304, "", null);
+            else return new APIResponse(200, "{\"id\":1}", null, "\"v1\"", null);
+        });
+        access.setConditionalRequestCache(new ConditionalRequestCache(16));
+
+        APIResponse first = access.sendAPIRequestSync("api/mc/player", "GET", null);
+        MCPlayer player = first.getResponseAs(MCPlayer.class);
+        APIResponse second = access.sendAPIRequestSync("api/mc/player", "GET", null);
+
+        assertEquals(2, requests.size());
+        assertNull(requests.get(0).getHeaders().get("If-None-Match"));
+        assertEquals("\"v1\"", requests.get(1).getHeaders().get("If-None-Match"));
+
+        assertSame(first, second);
+        assertSame(player, second.getResponseAs(MCPlayer.class));
+        assertEquals(1, Objects.requireNonNull(access.getConditionalRequestCache()).getNotModifiedCount());
+    }
+
+    @Test
+    void conditionalRequestsAfterEviction() {
+        List<APIRequest> requests = new ArrayList<>();
+        APIAccess access = new APIAccess();
+        access.setTransport(request -> {
+            requests.add(request);
+            if (request.getHeaders().containsKey("If-None-Match")) return new APIResponse(304, "", null);
+            else return new APIResponse(200, "{\"id\":1}", null, "\"v1\"", null);
+        });
+        // behaves as if the stored response was evicted right after the request was prepared
+        access.setConditionalRequestCache(new ConditionalRequestCache(16) {
+            @Override
+            public APIRequest prepare(APIRequest request) {
+                return request.withHeader("If-None-Match", "\"v1\"");
+            }
+        });
+
+        APIResponse sync = access.sendAPIRequestSync("api/mc/player", "GET", null);
+        assertEquals(200, sync.getResponseCode());
+        assertEquals(2, requests.size());
+        assertNull(requests.get(1).getHeaders().get("If-None-Match"));
+
+        APIResponse async = access.sendAPIRequest("api/mc/player-by-id", "GET", null).join();
+        assertEquals(200, async.getResponseCode());
+        assertNotNull(async.getResponseAs(MCPlayer.class));
+        assertEquals(4, requests.size());
+        assertNull(requests.get(3).getHeaders().get("If-None-Match"));
+    }
+
+    @Test
+    void parseResponseOnce() {
+        APIResponse response = new APIResponse(422, null, "{\"message\":\"Invalid.\",\"errors\":{\"uuid\":[\"required\"]}}");
+
+        JsonElement tree = response.getErrorTree();
+        assertNotNull(tree);
+        assertSame(tree, response.getErrorTree());
+        assertSame(tree, response.getErrorAs(JsonObject.class));
+
+        assertEquals("Invalid.", response.getJsonStatusMessage());
+        assertFalse(response.hasInvalidScopes());
+        assertTrue(response.hasValidationViolations());
+        assertEquals("required", response.getValidationViolations().getViolations().get(0).getErrors().get(0));
+        assertNull(response.getResponseTree());
+
+        APIResponse invalid = new APIResponse(403, null, "not json");
+        assertFalse(invalid.hasInvalidScopes());
+        assertNull(invalid.getJsonStatusMessage());
+    }
+
+    @Test
+    void requestBodies() throws IOException {
+        JsonObject json = object().set("uuid", "\u00e4<b>").set("count", 3).createObject();
+        RequestBody body = RequestBody.of(json);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        assertEquals(json.toString(), body.toString());
+        assertArrayEquals(json.toString().getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertEquals(-1L, body.getContentLength());
+
+        RequestBody bytes = RequestBody.ofBytes(out.toByteArray());
+        assertEquals(out.size(), bytes.getContentLength());
+        assertEquals(json, bytes.toJsonTree());
+
+        APIRequest request = new APIAccess().createRequest("api/mc/player", "POST", json);
+        assertEquals(request.getKey(), request.withBody(bytes).getKey());
+    }
+
+    @Test
+    void limitConcurrentRequests() {
+        PendingTransport transport = new PendingTransport();
+        APIAccess access = new APIAccess();
+        access.setTransport(transport);
+        access.setRequestCoalescing(true);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1);
+        access.setConcurrencyLimiter(limiter);
+
+        CompletableFuture<APIResponse> first = access.post("api/mc/player", object().set("uuid", "a").createObject());
+        CompletableFuture<APIResponse> coalesced = access.post("api/mc/player", object().set("uuid", "a").createObject());
+        CompletableFuture<APIResponse> second = access.post("api/mc/player", object().set("uuid", "b").createObject());
+        CompletableFuture<APIResponse> queued = access.post("api/mc/player", object().set("uuid", "c").createObject());
+        CompletableFuture<APIResponse> rejected = access.post("api/mc/player", object().set("uuid", "d").createObject());
+
+        assertEquals(2, transport.pending.size());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getQueueDepth());
+
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RequestRejectedException.class, e.getCause());
+        assertThrows(RequestRejectedException.class, () -> access.sendAPIRequestSync("api/auth", "GET", null));
+        assertEquals(2, limiter.getRejectedRequests());
+
+        // completing a request hands its slot to the waiting one
+        transport.pending.get(0).complete(new APIResponse(200, "{}", null));
+        assertSame(first.join(), coalesced.join());
+        assertEquals(3, transport.pending.size());
+        assertFalse(queued.isDone());
+        assertEquals(0, limiter.getQueueDepth());
+
+        transport.pending.forEach(f -> f.complete(new APIResponse(200, "{}", null)));
+        assertEquals(200, second.join().getResponseCode());
+        assertEquals(200, queued.join().getResponseCode());
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getMaxQueueDepth());
+        assertEquals(1, limiter.getQueuedRequests());
+        assertEquals(1, limiter.getQueueWait().getCount());
+    }
+
+    @Test
+    void cancelQueuedRequests() {
+        PendingTransport transport = new PendingTransport();
+        APIAccess access = new APIAccess();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 2);
+        Function<APIRequest, CompletableFuture<APIResponse>> sender = request -> transport.executeAsync(request, null);
+
+        CompletableFuture<APIResponse> first = limiter.submit(access.createRequest("api/mc/player", "GET", null), sender);
+        CompletableFuture<APIResponse> cancelled = limiter.submit(access.createRequest("api/mc/user", "GET", null), sender);
+        CompletableFuture<APIResponse> failed = limiter.submit(access.createRequest("api/mc/stats", "GET", null), sender);
+        assertEquals(2, limiter.getQueueDepth());
+
+        // waiters which are completed exceptionally give up their place in the queue
+        assertTrue(cancelled.cancel(false));
+        assertTrue(failed.completeExceptionally(new IllegalStateException()));
+        assertEquals(0, limiter.getQueueDepth());
+
+        CompletableFuture<APIResponse> queued = limiter.submit(access.createRequest("api/auth", "GET", null), sender);
+        assertEquals(1, limiter.getQueueDepth());
+
+        transport.pending.get(0).complete(new APIResponse(200, "{}", null));
+        assertEquals(200, first.join().getResponseCode());
+        assertEquals(2, transport.pending.size());  // only the last request was sent
+
+        transport.pending.get(1).complete(new APIResponse(200, "{}", null));
+        assertEquals(200, queued.join().getResponseCode());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void limitSynchronousRequests() throws InterruptedException {
+        APIAccess access = new APIAccess();
+        CompletableFuture<Void> entered = new CompletableFuture<>(), proceed = new CompletableFuture<>();
+        access.setTransport(request -> {
+            if ("api/slow".equals(request.getPath())) {
+                entered.complete(null);
+                proceed.join();
+            }
+            return new APIResponse(200, "{}", null);
+        });
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        access.setConcurrencyLimiter(limiter);
+
+        Thread slow = new Thread(() -> access.sendAPIRequestSync("api/slow", "GET", null));
+        slow.start();
+        entered.join();
+
+        CompletableFuture<APIResponse> waiting = CompletableFuture.supplyAsync(() -> access.sendAPIRequestSync("api/fast", "GET", null));
+        while (limiter.getQueueDepth() == 0) Thread.sleep(1);
+
+        assertThrows(RequestRejectedException.class, () -> access.sendAPIRequestSync("api/fast", "GET", null));
+        assertFalse(waiting.isDone());
+
+        proceed.complete(null);
+        assertEquals(200, waiting.join().getResponseCode());
+        slow.join();
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    /**
+     * A transport which never completes requests on its own.
+     */
+    static class PendingTransport implements APITransport {
+
+        final List<CompletableFuture<APIResponse>> pending = new ArrayList<>();
+
+        @Override
+        public APIResponse execute(APIRequest request) throws APIException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<APIResponse> executeAsync(APIRequest request, @Nullable Executor executor) {
+            CompletableFuture<APIResponse> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.api.*;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+import work.lclpnet.lclpnetwork.util.BatchLoader;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLoaderTests {
+
+    @Test
+    void batchByWindow() {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        BatchLoader<Integer, String> loader = new BatchLoader<>(keys -> {
+            batches.add(keys);
+            Map<Integer, String> values = new HashMap<>();
+            keys.stream().filter(k -> k != 3).forEach(k -> values.put(k, "v" + k));
+            return CompletableFuture.completedFuture(values);
+        }, 50, TimeUnit.MILLISECONDS, 100);
+
+        CompletableFuture<String> one = loader.load(1), two = loader.load(2), three = loader.load(3), again = loader.load(1);
+
+        assertEquals("v1", one.join());
+        assertEquals("v2", two.join());
+        assertNull(three.join());
+        assertEquals("v1", again.join());
+
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList(1, 2, 3), batches.get(0));
+    }
+
+    @Test
+    void batchBySize() {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(keys -> {
+            batches.add(keys);
+            Map<Integer, Integer> values = new HashMap<>();
+            keys.forEach(k -> values.put(k, k * 2));
+            return CompletableFuture.completedFuture(values);
+        }, 1, TimeUnit.HOURS, 2);
+
+        CompletableFuture<Integer> one = loader.load(1), two = loader.load(2);
+        assertEquals(2, one.join());
+        assertEquals(4, two.join());
+        assertEquals(1, batches.size());
+
+        CompletableFuture<Integer> three = loader.load(3);
+        assertFalse(three.isDone());
+        loader.flush();
+        assertEquals(6, three.join());
+        assertEquals(2, loader.getDispatchedBatches());
+        assertEquals(3, loader.getLoadedKeys());
+    }
+
+    @Test
+    void minecraftApiBatching() {
+        BulkPlayerTransport transport = new BulkPlayerTransport();
+        APIAccess access = new APIAccess();
+        access.setTransport(transport);
+
+        LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+        api.enableBatching(50, TimeUnit.MILLISECONDS, 100);
+
+        CompletableFuture<MCPlayer> first = api.getMCPlayerByUUID("a"), second = api.getMCPlayerByUUID("b"),
+                unknown = api.getMCPlayerByUUID("unknown");
+
+        assertEquals("a", first.join().getUuid());
+        assertEquals("b", second.join().getUuid());
+        assertNull(unknown.join());
+        assertEquals(1, transport.requests.size());
+        assertEquals("api/mc/players", transport.requests.get(0).getPath());
+
+        Map<String, MCPlayer> players = api.getMCPlayersByUUIDs(Arrays.asList("c", "d")).join();
+        assertEquals(2, players.size());
+        assertEquals("d", players.get("d").getUuid());
+    }
+
+    @Test
+    void minecraftApiBatchingFailure() {
+        APIAccess access = new APIAccess();
+        access.setTransport(request -> new APIResponse(500, null, "{\"message\":\"Server Error\"}"));
+
+        LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+        CompletionException single = assertThrows(CompletionException.class, () -> api.getMCPlayerByUUID("a").join());
+        assertInstanceOf(ResponseEvaluationException.class, single.getCause());
+
+        // a failed bulk request fails every lookup of the batch, just like a failed single-key request
+        api.enableBatching(50, TimeUnit.MILLISECONDS, 100);
+        CompletableFuture<MCPlayer> first = api.getMCPlayerByUUID("a"), second = api.getMCPlayerByUUID("b");
+        assertInstanceOf(ResponseEvaluationException.class, assertThrows(CompletionException.class, first::join).getCause());
+        assertInstanceOf(ResponseEvaluationException.class, assertThrows(CompletionException.class, second::join).getCause());
+
+        // only unknown keys result in null
+        access.setTransport(request -> new APIResponse(404, null, "{\"message\":\"Not found.\"}"));
+        CompletableFuture<MCPlayer> unknown = api.getMCPlayerByUUID("unknown");
+        assertNull(unknown.join());
+    }
+
+    /**
+     * A stand-in for the bulk player endpoint, which knows every player except "unknown".
+     */
+    static class BulkPlayerTransport implements APITransport {
+
+        final List<APIRequest> requests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public APIResponse execute(APIRequest request) throws APIException {
+            requests.add(request);
+
+            JsonElement body = Objects.requireNonNull(request.getBody());
+            JsonArray players = new JsonArray();
+            body.getAsJsonObject().getAsJsonArray("uuids").forEach(uuid -> {
+                if ("unknown".equals(uuid.getAsString())) return;
+
+                JsonObject player = new JsonObject();
+                player.addProperty("id", players.size() + 1);
+                player.add("uuid", uuid);
+                players.add(player);
+            });
+
+            return new APIResponse(200, players.toString(), null);
+        }
+    }
+
+}
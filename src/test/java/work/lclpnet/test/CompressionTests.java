@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.api.APIAccess;
+import work.lclpnet.lclpnetwork.api.APIResponse;
+import work.lclpnet.lclpnetwork.api.TransferStats;
+import work.lclpnet.lclpnetwork.api.URLConnectionTransport;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+import work.lclpnet.lclpnetwork.model.MCStats;
+import work.lclpnet.lclpnetwork.util.Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static work.lclpnet.lclpnetwork.util.JsonBuilder.object;
+
+public class CompressionTests {
+
+    private static final String BODY = "{\"stats\":[" + String.join(",", Collections.nCopies(50, "{\"name\":\"bedwars\"}")) + "]}";
+
+    @Test
+    void decompress() throws IOException {
+        byte[] plain = BODY.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(BODY, decompress(plain, null));
+        assertEquals(BODY, decompress(plain, "identity"));
+        assertEquals(BODY, decompress(gzip(plain), "gzip"));
+        assertEquals(BODY, decompress(gzip(plain), "x-gzip"));
+        assertEquals(BODY, decompress(deflate(plain, false), "deflate"));
+        assertEquals(BODY, decompress(deflate(plain, true), "deflate"));
+        assertEquals("", decompress(new byte[0], "deflate"));
+
+        assertThrows(IOException.class, () -> decompress(plain, "br"));
+    }
+
+    @Test
+    void compressedResponses() throws IOException {
+        for (String compression : new String[] {null, "gzip", "deflate", "raw-deflate"}) {
+            try (StandInServer server = new StandInServer()) {
+                server.setCompression(compression);
+                server.setStatsSize(10, 20, 3);
+
+                URLConnectionTransport transport = new URLConnectionTransport();
+                APIAccess access = StandInServerTests.access(server);
+                access.setTransport(transport);
+
+                // decoded from the stream
+                MCStats stats = new LCLPMinecraftAPI(access).getStats(StandInServer.uuid(1), null).join();
+                assertNotNull(stats, compression);
+                assertEquals(10, stats.getStats().size(), compression);
+
+                // buffered as raw body
+                APIResponse response = access.sendAPIRequestSync("api/mc/player", "POST", object().set("uuid", StandInServer.uuid(2)).createObject());
+                assertEquals(200, response.getResponseCode());
+                assertEquals(StandInServer.uuid(2), response.getResponseTree().getAsJsonObject().get("uuid").getAsString());
+
+                TransferStats transfer = transport.getTransferStats();
+                assertEquals(server.getResponseBytes(), transfer.getWireBytes(), compression);
+                assertEquals(server.getUncompressedBytes(), transfer.getDecodedBytes(), compression);
+                if (compression == null) assertEquals(transfer.getDecodedBytes(), transfer.getWireBytes());
+                else assertTrue(transfer.getWireBytes() < transfer.getDecodedBytes(), compression);
+            }
+        }
+    }
+
+    @Test
+    void compressionDisabled() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setCompression("gzip");
+
+            URLConnectionTransport transport = new URLConnectionTransport();
+            transport.setCompression(false);
+            APIAccess access = StandInServerTests.access(server);
+            access.setTransport(transport);
+
+            APIResponse response = access.sendAPIRequestSync("api/mc/player", "POST", object().set("uuid", StandInServer.uuid(1)).createObject());
+            assertEquals(200, response.getResponseCode());
+            assertEquals(server.getUncompressedBytes(), server.getResponseBytes());
+            assertEquals(server.getResponseBytes(), transport.getTransferStats().getWireBytes());
+            assertEquals(server.getResponseBytes(), response.getResponseBytes());
+        }
+    }
+
+    private static String decompress(byte[] body, String encoding) throws IOException {
+        return Utils.toString(Utils.decompress(new ByteArrayInputStream(body), encoding), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] plain) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(plain);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] plain, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        try (OutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(plain);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
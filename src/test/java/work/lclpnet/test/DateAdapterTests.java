@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.util.FixedLayoutDateAdapter;
+import work.lclpnet.lclpnetwork.util.GsonAccess;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateAdapterTests {
+
+    private static final DateTimeFormatter UTC_LAYOUT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    @Test
+    void utc() {
+        FixedLayoutDateAdapter.UTC adapter = new FixedLayoutDateAdapter.UTC();
+
+        assertEquals(Instant.parse("2021-05-03T12:34:56.789Z").toEpochMilli(), adapter.parse("2021-05-03T12:34:56.789123Z"));
+        assertEquals(Instant.parse("2021-05-03T12:34:56Z").toEpochMilli(), adapter.parse("2021-05-03T12:34:56Z"));
+        assertEquals(Instant.parse("2021-05-03T12:34:56.7Z").toEpochMilli(), adapter.parse("2021-05-03T12:34:56.7Z"));
+        assertEquals("2021-05-03T12:34:56.789000Z", adapter.format(Instant.parse("2021-05-03T12:34:56.789Z").toEpochMilli()));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long millis = random.nextLong() % 100_000_000_000_000L;  // roughly year -1200 to 5100
+            if (millis < -62167219200000L) continue;  // before year 0
+
+            String expected = UTC_LAYOUT.format(Instant.ofEpochMilli(millis));
+            assertEquals(expected, adapter.format(millis));
+            assertEquals(millis, adapter.parse(expected));
+        }
+
+        assertThrows(DateTimeParseException.class, () -> adapter.parse("2021-02-29T00:00:00.000000Z"));
+        assertThrows(DateTimeParseException.class, () -> adapter.parse("2021-05-03 12:34:56"));
+        assertThrows(DateTimeParseException.class, () -> adapter.parse("2021-05-03T12:34:5x.000000Z"));
+    }
+
+    @Test
+    void ymdhms() {
+        for (String zoneId : new String[] {"UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata"}) {
+            ZoneId zone = ZoneId.of(zoneId);
+            FixedLayoutDateAdapter.YMDHMS adapter = new FixedLayoutDateAdapter.YMDHMS(zone);
+
+            SimpleDateFormat legacy = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            legacy.setTimeZone(TimeZone.getTimeZone(zone));
+
+            Random random = new Random(zoneId.hashCode());
+            for (int i = 0; i < 10_000; i++) {
+                long millis = (Math.floorMod(random.nextLong(), 4_000_000_000_000L) - 2_000_000_000_000L) / 1000 * 1000;  // roughly 1906 to 2033, whole seconds
+
+                String expected = legacy.format(new Date(millis));
+                assertEquals(expected, adapter.format(millis));
+
+                LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+                assertEquals(local.atZone(zone).toInstant().toEpochMilli(), adapter.parse(expected));
+            }
+        }
+    }
+
+    @Test
+    void gson() {
+        Gson gson = GsonAccess.getGson();
+
+        Date date = gson.fromJson("\"2021-05-03T12:34:56.789123Z\"", Date.class);
+        assertEquals(Instant.parse("2021-05-03T12:34:56.789Z").toEpochMilli(), date.getTime());
+        assertEquals("\"2021-05-03T12:34:56.789000Z\"", gson.toJson(date));
+        assertNull(gson.fromJson("null", Date.class));
+
+        assertThrows(JsonParseException.class, () -> gson.fromJson("\"yesterday\"", Date.class));
+    }
+}
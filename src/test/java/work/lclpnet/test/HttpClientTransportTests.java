@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.api.*;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+import work.lclpnet.lclpnetwork.model.MCStats;
+import work.lclpnet.lclpnetwork.util.JsonBuilder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the Java 11 transport, which is only available on Java 11 and later.
+ */
+public class HttpClientTransportTests {
+
+    private static Class<?> transportClass = null;
+
+    @BeforeAll
+    static void load() {
+        try {
+            transportClass = Class.forName("work.lclpnet.lclpnetwork.api.HttpClientTransport");
+        } catch (ClassNotFoundException | LinkageError ignored) {}
+    }
+
+    private static APITransport transport() throws ReflectiveOperationException {
+        assumeTrue(transportClass != null, "HttpClientTransport requires Java 11");
+        return (APITransport) transportClass.getDeclaredConstructor().newInstance();
+    }
+
+    @Test
+    void lookups() throws Exception {
+        try (StandInServer server = new StandInServer()) {
+            APIAccess access = StandInServerTests.access(server);
+            access.setTransport(transport());
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+
+            MCPlayer player = api.getMCPlayerByUUID(StandInServer.uuid(1)).join();
+            assertNotNull(player);
+            assertEquals(StandInServer.uuid(1), player.getUuid());
+            assertNull(api.getMCPlayerByUUID(StandInServer.uuid(100_000)).join());
+
+            MCStats stats = api.getStats(StandInServer.uuid(1), null).join();
+            assertNotNull(stats);
+            assertFalse(stats.getStats().isEmpty());
+
+            APIResponse raw = access.sendAPIRequestSync("api/mc/player", "POST",
+                    JsonBuilder.object().set("uuid", StandInServer.uuid(2)).createObject());
+            assertEquals(200, raw.getResponseCode());
+            assertNotNull(raw.getRawResponse());
+            assertTrue(raw.getRequestBytes() > 0);
+            assertTrue(raw.getResponseBytes() > 0);
+
+            APIResponse missing = access.sendAPIRequestSync("api/mc/player", "POST",
+                    JsonBuilder.object().set("uuid", StandInServer.uuid(100_000)).createObject());
+            assertEquals(404, missing.getResponseCode());
+            assertNull(missing.getRawResponse());
+            assertNotNull(missing.getRawError());
+
+            assertSame(APIException.UNAUTHENTICATED, assertThrows(APIException.class, () -> access.sendAPIRequestSync("api/auth", "GET", null)));
+        }
+    }
+
+    @Test
+    void noConnection() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        APIAccess access = new APIAccess();
+        access.setHost("http://127.0.0.1:" + port);
+        access.setTransport(transport());
+
+        assertSame(APIException.NO_CONNECTION, assertThrows(APIException.class, () -> access.sendAPIRequestSync("api/auth", "GET", null)));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> access.sendAPIRequest(access.createRequest("api/auth", "GET")).join());
+        assertSame(APIException.NO_CONNECTION, e.getCause());
+    }
+
+    @Test
+    void requestsDoNotOccupyThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (StandInServer server = new StandInServer()) {
+            server.setLatency(300, 0, TimeUnit.MILLISECONDS);
+
+            APIAccess access = StandInServerTests.access(server);
+            access.setTransport(transport());
+            access.setCustomExecutor(executor);
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+
+            // with one thread per request, these would take 20 * 300 ms on a single thread
+            long start = System.nanoTime();
+            List<CompletableFuture<MCPlayer>> futures = new ArrayList<>();
+            for (int i = 1; i <= 20; i++) futures.add(api.getMCPlayerByUUID(StandInServer.uuid(i)));
+            futures.forEach(future -> assertNotNull(future.join()));
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(millis < 3000, () -> String.format("took %d ms", millis));
+            assertTrue(server.getMaxInFlight() > 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
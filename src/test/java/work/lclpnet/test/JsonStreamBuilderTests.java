@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.util.JsonStreamBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static work.lclpnet.lclpnetwork.util.JsonBuilder.object;
+
+public class JsonStreamBuilderTests {
+
+    @Test
+    void sameAsJsonBuilder() {
+        String text = "quote \" backslash \\ newline \n tab \t control \u0001 umlaut \u00e4 euro \u20ac emoji \uD83D\uDE00 separator \u2028";
+
+        JsonObject expected = object()
+                .set("uuid", "7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a")
+                .set("text", text)
+                .set("int", 42)
+                .set("long", Long.MIN_VALUE)
+                .set("negative", -17L)
+                .set("double", 3.0)
+                .set("fraction", 0.125)
+                .set("large", 1.5e300)
+                .set("bool", true)
+                .set("null", null)
+                .set("list", Collections.singletonList("a"))
+                .beginObject("child").set("value", false).endObject()
+                .beginArray("ids").addAll(Arrays.asList(1, 2L, "three", null)).endArray()
+                .createObject();
+
+        String actual = JsonStreamBuilder.object()
+                .set("uuid", "7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a")
+                .set("text", text)
+                .set("int", 42)
+                .set("long", Long.MIN_VALUE)
+                .set("negative", -17L)
+                .set("double", 3.0)
+                .set("fraction", 0.125)
+                .set("large", 1.5e300)
+                .set("bool", true)
+                .set("null", (Object) null)
+                .set("list", Collections.singletonList("a"))
+                .beginObject("child").set("value", false).endObject()
+                .beginArray("ids").addAll(Arrays.asList(1, 2L, "three", null)).endArray()
+                .toString();
+
+        assertEquals(expected, JsonParser.parseString(actual));
+        assertTrue(actual.contains("\"double\":3.0"));
+    }
+
+    @Test
+    void encodesUtf8() {
+        byte[] bytes = JsonStreamBuilder.array().add("\u00e4\u20ac\uD83D\uDE00").add(-0.0).toByteArray();
+        assertArrayEquals("[\"\u00e4\u20ac\uD83D\uDE00\",-0.0]".getBytes(StandardCharsets.UTF_8), bytes);
+    }
+
+    @Test
+    void reuseLocalBuilder() {
+        JsonStreamBuilder builder = JsonStreamBuilder.localObject().set("uuid", "a");
+        assertEquals("{\"uuid\":\"a\"}", builder.toString());
+
+        assertSame(builder, JsonStreamBuilder.localArray());
+        assertEquals("[1,2]", builder.add(1).add(2).toString());
+    }
+
+    @Test
+    void invalidUsage() {
+        assertThrows(IllegalStateException.class, () -> JsonStreamBuilder.object().add("a"));
+        assertThrows(IllegalStateException.class, () -> JsonStreamBuilder.array().set("a", 1));
+        assertThrows(IllegalStateException.class, () -> JsonStreamBuilder.object().endObject());
+        assertThrows(IllegalStateException.class, () -> JsonStreamBuilder.object().beginArray("a").toString());
+        assertThrows(IllegalArgumentException.class, () -> JsonStreamBuilder.array().add(Double.NaN));
+
+        JsonStreamBuilder finished = JsonStreamBuilder.object();
+        finished.toByteArray();
+        assertThrows(IllegalStateException.class, () -> finished.set("a", 1));
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import work.lclpnet.lclpnetwork.api.APIAccess;
+import work.lclpnet.lclpnetwork.api.ConcurrencyLimiter;
+import work.lclpnet.lclpnetwork.api.URLConnectionTransport;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * An open-loop load generator, which drives {@link LCLPMinecraftAPI} at a target request rate against a {@link StandInServer}.
+ * Latencies are measured from the time a request was scheduled to be sent, so that a saturated client does not hide its queueing delay.
+ * <p>
+ * Run it with <code>gradlew loadTest -PloadTestArgs="--rate=2000 --executor=fixed:64"</code>. Options:
+ * <ul>
+ *     <li><code>--rate</code> requests per second (default 1000)</li>
+ *     <li><code>--duration</code> and <code>--warmup</code> in seconds (default 10 and 3)</li>
+ *     <li><code>--operation</code> player, stats or mixed (default player)</li>
+ *     <li><code>--executor</code> default (common pool), cached or fixed:&lt;threads&gt; (default default)</li>
+ *     <li><code>--keep-alive</code> reuse connections (default false)</li>
+ *     <li><code>--max-outstanding</code> requests in flight, before further requests are dropped (default 10000)</li>
+ *     <li><code>--limit</code> a {@link ConcurrencyLimiter} as &lt;in-flight&gt;:&lt;queued&gt;, rejected requests count as failed (default none)</li>
+ *     <li><code>--latency</code> and <code>--jitter</code> of the stand-in server in milliseconds (default 5 and 5)</li>
+ *     <li><code>--host</code> an already running stand-in server, instead of an in-process one</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private final Map<String, String> options;
+    private final int rate;
+    private final int maxOutstanding;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.rate = Integer.parseInt(option("rate", "1000"));
+        this.maxOutstanding = Integer.parseInt(option("max-outstanding", "10000"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument " + arg);
+
+            int eq = arg.indexOf('=');
+            if (eq < 0) options.put(arg.substring(2), "true");
+            else options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        new LoadTest(options).run();
+    }
+
+    private String option(String key, String fallback) {
+        return options.getOrDefault(key, fallback);
+    }
+
+    private void run() throws IOException, InterruptedException {
+        StandInServer server = null;
+        String host = options.get("host");
+
+        if (host == null) {
+            server = new StandInServer();
+            server.setPlayerCount(10_000);
+            server.setLatency(Long.parseLong(option("latency", "5")), Long.parseLong(option("jitter", "5")), TimeUnit.MILLISECONDS);
+            host = server.getHost();
+        }
+
+        ExecutorService executor = createExecutor(option("executor", "default"));
+
+        APIAccess access = new APIAccess();
+        access.setHost(host);
+        access.setCustomExecutor(executor);
+
+        URLConnectionTransport transport = new URLConnectionTransport();
+        transport.setKeepAlive(Boolean.parseBoolean(option("keep-alive", "false")));
+        access.setTransport(transport);
+
+        ConcurrencyLimiter limiter = null;
+        String limit = options.get("limit");
+        if (limit != null) {
+            String[] parts = limit.split(":", 2);
+            limiter = new ConcurrencyLimiter(Integer.parseInt(parts[0]), parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+            access.setConcurrencyLimiter(limiter);
+        }
+
+        LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+        IntFunction<CompletableFuture<?>> operation = createOperation(api, option("operation", "player"));
+
+        try {
+            System.out.printf("Target %d req/s against %s, options %s%n", rate, host, options);
+
+            runPhase(operation, Integer.parseInt(option("warmup", "3")), null);
+
+            Snapshot before = Snapshot.take();
+            Recorder recorder = new Recorder((int) Math.min((long) rate * Integer.parseInt(option("duration", "10")) + 1024, 50_000_000L));
+            long elapsed = runPhase(operation, Integer.parseInt(option("duration", "10")), recorder);
+            Snapshot after = Snapshot.take();
+
+            report(recorder, elapsed, before, after);
+            if (limiter != null) System.out.printf("limiter     %s%n", limiter);
+        } finally {
+            if (executor != null) executor.shutdownNow();
+            if (server != null) server.close();
+        }
+    }
+
+    private static ExecutorService createExecutor(String executor) {
+        if ("default".equals(executor)) return null;
+        if ("cached".equals(executor)) return Executors.newCachedThreadPool();
+        if (executor.startsWith("fixed:")) return Executors.newFixedThreadPool(Integer.parseInt(executor.substring(6)));
+
+        throw new IllegalArgumentException("Unknown executor " + executor);
+    }
+
+    private static IntFunction<CompletableFuture<?>> createOperation(LCLPMinecraftAPI api, String operation) {
+        switch (operation) {
+            case "player": return i -> api.getMCPlayerByUUID(randomUuid());
+            case "stats": return i -> api.getStats(randomUuid(), null);
+            case "mixed": return i -> i % 4 == 0 ? api.getStats(randomUuid(), null) : api.getMCPlayerByUUID(randomUuid());
+            default: throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private static String randomUuid() {
+        return StandInServer.uuid(1 + ThreadLocalRandom.current().nextInt(10_000));
+    }
+
+    /**
+     * Sends requests at the target rate for a number of seconds and waits for them to complete.
+     * @return The nanoseconds from the start of the phase until the last request completed.
+     */
+    private long runPhase(IntFunction<CompletableFuture<?>> operation, int seconds, Recorder recorder) throws InterruptedException {
+        final long interval = 1_000_000_000L / rate;
+        final long start = System.nanoTime(), end = start + TimeUnit.SECONDS.toNanos(seconds);
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicLong lastCompletion = new AtomicLong(start);
+
+        long next = start;
+        for (int i = 0; next < end; i++, next += interval) {
+            long now;
+            while ((now = System.nanoTime()) < next) LockSupport.parkNanos(next - now);
+
+            if (outstanding.get() >= maxOutstanding) {
+                if (recorder != null) recorder.dropped.incrementAndGet();
+                continue;
+            }
+
+            final long scheduled = next;
+            outstanding.incrementAndGet();
+
+            CompletableFuture<?> future;
+            try {
+                future = operation.apply(i);
+            } catch (RuntimeException e) {
+                CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                future = failed;
+            }
+
+            future.whenComplete((result, error) -> {
+                long completed = System.nanoTime();
+                lastCompletion.accumulateAndGet(completed, Math::max);
+                if (recorder != null) recorder.record(completed - scheduled, error != null);
+                outstanding.decrementAndGet();
+            });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+
+        if (outstanding.get() > 0) System.out.printf("%d requests did not complete within 30 seconds%n", outstanding.get());
+
+        return lastCompletion.get() - start;
+    }
+
+    private void report(Recorder recorder, long elapsedNanos, Snapshot before, Snapshot after) {
+        long[] latencies = recorder.sorted();
+        int count = latencies.length;
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println();
+        System.out.printf("requests    %d completed, %d failed, %d dropped%n", count, recorder.errors.get(), recorder.dropped.get());
+        System.out.printf("throughput  %.1f req/s (target %d req/s)%n", count / seconds, rate);
+
+        if (count > 0) {
+            System.out.printf("latency     p50 %s, p99 %s, p99.9 %s, max %s%n",
+                    millis(percentile(latencies, 0.5)), millis(percentile(latencies, 0.99)),
+                    millis(percentile(latencies, 0.999)), millis(latencies[count - 1]));
+        }
+
+        System.out.printf("threads     %d live, %d peak%n", after.threads, after.peakThreads);
+
+        if (after.allocatedBytes >= 0 && before.allocatedBytes >= 0) {
+            long allocated = after.allocatedBytes - before.allocatedBytes;
+            System.out.printf("allocation  %.1f MB total, %.1f KB per request%s%n", allocated / 1e6,
+                    count == 0 ? 0.0 : allocated / 1e3 / count, options.containsKey("host") ? "" : " (including the in-process server)");
+        }
+
+        System.out.printf("gc          %d collections, %d ms%n", after.gcCount - before.gcCount, after.gcMillis - before.gcMillis);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+
+    /**
+     * Collects the latencies of a phase.
+     */
+    private static class Recorder {
+
+        private final long[] latencies;
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong errors = new AtomicLong(), dropped = new AtomicLong();
+
+        Recorder(int capacity) {
+            this.latencies = new long[capacity];
+        }
+
+        void record(long nanos, boolean error) {
+            if (error) errors.incrementAndGet();
+
+            int index = size.getAndIncrement();
+            if (index < latencies.length) latencies[index] = nanos;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, Math.min(size.get(), latencies.length));
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * The thread, allocation and GC counters of the JVM at a point in time.
+     */
+    private static class Snapshot {
+
+        long threads, peakThreads;
+        long allocatedBytes = -1L;
+        long gcCount, gcMillis;
+
+        static Snapshot take() {
+            Snapshot snapshot = new Snapshot();
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+            snapshot.threads = threads.getThreadCount();
+            snapshot.peakThreads = threads.getPeakThreadCount();
+            threads.resetPeakThreadCount();
+
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+                if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                    long total = 0L;
+                    for (long bytes : allocation.getThreadAllocatedBytes(threads.getAllThreadIds()))
+                        if (bytes > 0) total += bytes;
+                    snapshot.allocatedBytes = total;
+                }
+            }
+
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                snapshot.gcCount += Math.max(0, gc.getCollectionCount());
+                snapshot.gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.cache.CacheStats;
+import work.lclpnet.lclpnetwork.cache.LookupCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LookupCacheTests {
+
+    @Test
+    void hitsAndMisses() {
+        LookupCache<String, String> cache = new ManualClockCache<>(LookupCache.builder());
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", key -> load(key, loads)).join());
+        assertEquals("A", cache.get("a", key -> load(key, loads)).join());
+        assertEquals(1, loads.get());
+
+        cache.invalidate("a");
+        assertNull(cache.getIfPresent("a"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    void expireAfterWrite() {
+        ManualClockCache<String, String> cache = new ManualClockCache<>(LookupCache.<String, String>builder()
+                .expireAfterWrite(10, TimeUnit.SECONDS));
+
+        cache.put("a", "A");
+        cache.advance(9, TimeUnit.SECONDS);
+        assertEquals("A", cache.getIfPresent("a"));
+        cache.advance(1, TimeUnit.SECONDS);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().getExpirationCount());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        LookupCache<String, String> cache = LookupCache.<String, String>builder().maximumSize(2).build();
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.getIfPresent("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("C", cache.getIfPresent("c"));
+        assertEquals(1, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    void evictByWeight() {
+        LookupCache<String, String> cache = LookupCache.<String, String>builder()
+                .maximumWeight(10, String::length)
+                .build();
+
+        cache.put("a", "123456");
+        cache.put("b", "1234");
+        assertEquals(10, cache.weight());
+
+        cache.put("c", "1");
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(5, cache.weight());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void negativeCaching() {
+        ManualClockCache<String, String> cache = new ManualClockCache<>(LookupCache.<String, String>builder()
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .negativeCaching(1, 5, TimeUnit.SECONDS));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("unknown", key -> loadNull(loads)).join());
+        assertNull(cache.get("unknown", key -> loadNull(loads)).join());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getNegativeHitCount());
+
+        // a newly linked value must be visible after the negative entry expired
+        cache.advance(5, TimeUnit.SECONDS);
+        assertEquals("UNKNOWN", cache.get("unknown", key -> load(key, loads)).join());
+        assertEquals(0, cache.negativeSize());
+
+        cache.get("x", key -> loadNull(loads)).join();
+        cache.get("y", key -> loadNull(loads)).join();
+        assertEquals(1, cache.negativeSize());
+    }
+
+    @Test
+    void refreshAhead() {
+        ManualClockCache<String, String> cache = new ManualClockCache<>(LookupCache.<String, String>builder()
+                .refreshAfterWrite(5, TimeUnit.SECONDS)
+                .expireAfterWrite(30, TimeUnit.SECONDS));
+
+        cache.put("a", "old");
+        cache.advance(6, TimeUnit.SECONDS);
+
+        CompletableFuture<String> reload = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        // stale entries are returned immediately, while only a single reload is started
+        assertEquals("old", cache.get("a", key -> { loads.incrementAndGet(); return reload; }).join());
+        assertEquals("old", cache.get("a", key -> { loads.incrementAndGet(); return reload; }).join());
+        assertEquals(1, loads.get());
+
+        reload.complete("new");
+        assertEquals("new", cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().getRefreshCount());
+
+        // expired entries must be loaded synchronously
+        cache.advance(31, TimeUnit.SECONDS);
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.get("a", key -> load);
+        assertFalse(result.isDone());
+        load.complete("newest");
+        assertEquals("newest", result.join());
+    }
+
+    @Test
+    void concurrentLoads() {
+        LookupCache<String, String> cache = LookupCache.<String, String>builder().build();
+        CompletableFuture<String> load = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        // lookups of a key that is being loaded join the pending load
+        CompletableFuture<String> first = cache.get("a", key -> { loads.incrementAndGet(); return load; });
+        CompletableFuture<String> second = cache.get("a", key -> { loads.incrementAndGet(); return load; });
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.loadingSize());
+
+        load.complete("A");
+        assertEquals("A", first.join());
+        assertEquals("A", second.join());
+        assertEquals(0, cache.loadingSize());
+        assertEquals("A", cache.getIfPresent("a"));
+
+        // failed loads are not kept
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.get("b", key -> failed);
+        failed.completeExceptionally(new IllegalStateException());
+        assertThrows(CompletionException.class, result::join);
+        assertEquals(0, cache.loadingSize());
+        assertEquals("B", cache.get("b", key -> load(key, loads)).join());
+    }
+
+    @Test
+    void refreshOutcomes() {
+        ManualClockCache<String, String> cache = new ManualClockCache<>(LookupCache.<String, String>builder()
+                .refreshAfterWrite(5, TimeUnit.SECONDS)
+                .expireAfterWrite(30, TimeUnit.SECONDS));
+
+        // failed refreshes keep the stale entry
+        cache.put("a", "old");
+        cache.advance(6, TimeUnit.SECONDS);
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        assertEquals("old", cache.get("a", key -> failed).join());
+        failed.completeExceptionally(new IllegalStateException());
+        assertEquals("old", cache.getIfPresent("a"));
+
+        // refreshes resulting in null remove the entry, even without negative caching
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("old", cache.get("a", key -> loadNull(loads)).join());
+        assertNull(cache.getIfPresent("a"));
+        assertNull(cache.get("a", key -> loadNull(loads)).join());
+        assertNull(cache.get("a", key -> loadNull(loads)).join());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void invalidateDuringLoad() {
+        ManualClockCache<String, String> cache = new ManualClockCache<>(LookupCache.<String, String>builder()
+                .refreshAfterWrite(5, TimeUnit.SECONDS)
+                .expireAfterWrite(30, TimeUnit.SECONDS));
+
+        // results of loads of invalidated keys are passed on, but not cached
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.get("a", key -> load);
+        cache.invalidate("a");
+        assertEquals(0, cache.loadingSize());
+        load.complete("outdated");
+        assertEquals("outdated", result.join());
+        assertNull(cache.getIfPresent("a"));
+
+        // refreshes of invalidated keys are dropped
+        cache.put("b", "old");
+        cache.advance(6, TimeUnit.SECONDS);
+        CompletableFuture<String> reload = new CompletableFuture<>();
+        assertEquals("old", cache.get("b", key -> reload).join());
+        cache.invalidateAll();
+        cache.put("b", "current");
+        reload.complete("outdated");
+        assertEquals("current", cache.getIfPresent("b"));
+    }
+
+    private static CompletableFuture<String> loadNull(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<String> load(String key, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(key.toUpperCase());
+    }
+
+    static class ManualClockCache<K, V> extends LookupCache<K, V> {
+
+        private long time = 0L;
+
+        ManualClockCache(Builder<K, V> builder) {
+            super(builder);
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            time += unit.toNanos(duration);
+        }
+
+        @Override
+        protected long now() {
+            return time;
+        }
+    }
+
+}
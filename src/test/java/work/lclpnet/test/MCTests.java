@@ -6,6 +6,7 @@
 
 package work.lclpnet.test;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import work.lclpnet.lclpnetwork.api.APIException;
 import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
@@ -16,6 +17,8 @@ import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+// requires the live API (and partially private tokens), run with the onlineTest task
+@Tag("online")
 public class MCTests {
 
     @Test
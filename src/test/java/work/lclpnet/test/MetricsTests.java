@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.api.APIAccess;
+import work.lclpnet.lclpnetwork.api.APIException;
+import work.lclpnet.lclpnetwork.api.APIRequest;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+import work.lclpnet.lclpnetwork.model.MCStats;
+import work.lclpnet.lclpnetwork.metrics.FlightRecorderEvents;
+import work.lclpnet.lclpnetwork.metrics.Histogram;
+import work.lclpnet.lclpnetwork.metrics.MetricsListener;
+import work.lclpnet.lclpnetwork.metrics.RequestMetrics;
+import work.lclpnet.lclpnetwork.metrics.RequestPhase;
+import work.lclpnet.lclpnetwork.metrics.RequestRecord;
+import work.lclpnet.lclpnetwork.metrics.RequestTimings;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MetricsTests {
+
+    @Test
+    void histogramPrecision() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(42);
+
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // log-normal, like request latencies in nanoseconds
+            values[i] = (long) Math.exp(14 + random.nextGaussian() * 1.5);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(Arrays.stream(values).average().orElse(0), histogram.getMean(), 1.0);
+
+        for (double percentile : new double[] {0, 1, 50, 90, 99, 99.9, 99.99, 100}) {
+            long exact = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact * 1.016 + 1, () -> String.format("p%s: exact %d, reported %d", percentile, exact, reported));
+        }
+
+        Histogram copy = histogram.copy();
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(values.length, copy.getCount());
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(1L << 42, histogram.getMax());
+    }
+
+    @Test
+    void endpointMetrics() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            APIAccess access = StandInServerTests.access(server);
+            RequestMetrics metrics = new RequestMetrics();
+            access.addMetricsListener(metrics);
+
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) futures.add(api.getMCPlayerByUUID(StandInServer.uuid(i)));
+            futures.add(api.getMCPlayerByUUID(StandInServer.uuid(100_000)));
+            futures.add(api.getStats(StandInServer.uuid(1), null));
+            futures.forEach(CompletableFuture::join);
+
+            server.setFailure("api/mc/stats", 503, 1.0);
+            assertThrows(CompletionException.class, () -> api.getStats(StandInServer.uuid(2), null).join());
+
+            RequestMetrics.Endpoint player = Objects.requireNonNull(metrics.getEndpoint("api/mc/player"));
+            assertEquals(6, player.getRequestCount());
+            assertEquals(5, player.getStatusCount(200));
+            assertEquals(1, player.getStatusCount(404));
+            assertEquals(0, player.getFailureCount());
+            assertTrue(player.getRequestBytes() >= 6 * "{\"uuid\":\"\"}".length() + 6 * 36);
+            assertTrue(player.getResponseBytes() > 0);
+            assertTrue(player.getLatency().getValueAtPercentile(50) > 0);
+
+            RequestMetrics.Endpoint stats = Objects.requireNonNull(metrics.getEndpoint("api/mc/stats"));
+            Map<Integer, Long> expected = new TreeMap<>();
+            expected.put(200, 1L);
+            expected.put(503, 1L);
+            assertEquals(expected, stats.getStatusCounts());
+
+            assertEquals(0, metrics.getInFlight());
+            assertEquals(0, access.getInFlightRequests());
+            assertEquals(2, metrics.getEndpoints().size());
+
+            metrics.reset();
+            assertEquals(0, player.getRequestCount());
+            assertEquals(0, player.getStatusCount(200));
+        }
+    }
+
+    @Test
+    void failedAndSyncRequests() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        APIAccess access = new APIAccess();
+        access.setHost("http://127.0.0.1:" + port);
+
+        List<RequestRecord> records = new CopyOnWriteArrayList<>();
+        List<String> started = new CopyOnWriteArrayList<>();
+        access.addMetricsListener(new MetricsListener() {
+            @Override
+            public void requestStarted(APIRequest request) {
+                started.add(request.getPath());
+                throw new IllegalStateException("listener exceptions must not fail requests");
+            }
+
+            @Override
+            public void requestCompleted(RequestRecord record) {
+                records.add(record);
+            }
+        });
+
+        assertThrows(APIException.class, () -> access.sendAPIRequestSync("api/auth", "GET", null));
+
+        assertEquals(Collections.singletonList("api/auth"), started);
+        assertEquals(1, records.size());
+        assertEquals(0, records.get(0).getStatus());
+        assertNull(records.get(0).getResponse());
+        assertSame(APIException.NO_CONNECTION, records.get(0).getError());
+
+        try (StandInServer server = new StandInServer()) {
+            access.setHost(server.getHost());
+            APIException unauthenticated = assertThrows(APIException.class, () -> access.sendAPIRequestSync("api/auth", "GET", null));
+            assertSame(APIException.UNAUTHENTICATED, unauthenticated);
+        }
+
+        // the response is recorded, before it is checked for authentication errors
+        assertEquals(2, records.size());
+        assertEquals(401, records.get(1).getStatus());
+        assertNull(records.get(1).getError());
+        assertEquals(0, records.get(1).getRequestBytes());
+        assertEquals(StandInServer.UNAUTHENTICATED.length(), records.get(1).getResponseBytes());
+    }
+
+    @Test
+    void phaseTimings() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setLatency(50, 0, TimeUnit.MILLISECONDS);
+            server.setStatsSize(20, 50, 5);
+
+            APIAccess access = StandInServerTests.access(server);
+            List<RequestRecord> records = new CopyOnWriteArrayList<>();
+            access.addMetricsListener(new MetricsListener() {
+                @Override
+                public void requestCompleted(RequestRecord record) {
+                    records.add(record);
+                }
+            });
+
+            // the first request also loads the connection classes, so only the second one is inspected
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+            api.getStats(StandInServer.uuid(1), null).join();
+            api.getStats(StandInServer.uuid(1), null).join();
+
+            assertEquals(2, records.size());
+            RequestTimings timings = records.get(1).getTimings();
+            assertTrue(timings.get(RequestPhase.CONNECT, TimeUnit.NANOSECONDS) > 0, timings::toString);
+            assertTrue(timings.get(RequestPhase.WAIT, TimeUnit.MILLISECONDS) >= 50, timings::toString);
+            assertTrue(timings.get(RequestPhase.DECODE, TimeUnit.NANOSECONDS) > 0, timings::toString);
+            assertTrue(timings.get(timings.getSlowestPhase(), TimeUnit.NANOSECONDS) >= timings.get(RequestPhase.WAIT, TimeUnit.NANOSECONDS));
+            assertTrue(timings.getTotal(TimeUnit.NANOSECONDS) <= records.get(1).getDuration(TimeUnit.NANOSECONDS), timings::toString);
+        }
+    }
+
+    @Test
+    void disabledFlightRecorderEvents() throws IOException {
+        assumeTrue(FlightRecorderEvents.isAvailable());
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        assertNull(FlightRecorderEvents.beginRequest());
+        assertNull(FlightRecorderEvents.beginDecode());
+
+        try (Recording recording = new Recording()) {
+            // a running recording, in which the events are disabled
+            recording.disable("work.lclpnet.lclpnetwork.APIRequest");
+            recording.disable("work.lclpnet.lclpnetwork.ModelDecode");
+            recording.start();
+
+            for (int run = 0; run < 2; run++) {  // the first run warms up
+                long thread = Thread.currentThread().getId();
+                long before = threads.getThreadAllocatedBytes(thread);
+
+                int emitted = 0;
+                for (int i = 0; i < 100_000; i++) {
+                    if (FlightRecorderEvents.beginRequest() != null) emitted++;
+                    if (FlightRecorderEvents.beginDecode() != null) emitted++;
+                }
+
+                long allocated = threads.getThreadAllocatedBytes(thread) - before;
+                assertEquals(0, emitted);
+                // measuring allocates a few bytes itself, but not one event per call
+                assertTrue(allocated < 10_000, () -> String.format("allocated %d bytes", allocated));
+            }
+
+            recording.enable("work.lclpnet.lclpnetwork.APIRequest");
+            assertNotNull(FlightRecorderEvents.beginRequest());
+            assertNull(FlightRecorderEvents.beginDecode());
+        }
+
+        assertNull(FlightRecorderEvents.beginRequest());
+    }
+
+    @Test
+    void flightRecorderEvents() throws IOException {
+        assumeTrue(FlightRecorderEvents.isAvailable());
+
+        Path file = Files.createTempFile("lclpnetwork", ".jfr");
+        try (StandInServer server = new StandInServer(); Recording recording = new Recording()) {
+            recording.enable("work.lclpnet.lclpnetwork.APIRequest");
+            recording.enable("work.lclpnet.lclpnetwork.ModelDecode");
+            recording.start();
+
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(StandInServerTests.access(server));
+            api.getMCPlayerByUUID(StandInServer.uuid(1)).join();
+            api.getStats(StandInServer.uuid(1), null).join();
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> requests = new ArrayList<>(), decodes = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (name.equals("work.lclpnet.lclpnetwork.APIRequest")) requests.add(event);
+                else if (name.equals("work.lclpnet.lclpnetwork.ModelDecode")) decodes.add(event);
+            }
+
+            assertEquals(2, requests.size());
+            RecordedEvent player = requests.stream().filter(event -> "api/mc/player".equals(event.getString("path"))).findAny()
+                    .orElseThrow(AssertionError::new);
+            assertEquals("POST", player.getString("method"));
+            assertEquals(200, player.getInt("status"));
+            assertTrue(player.getLong("responseBytes") > 0);
+            assertFalse(player.getDuration().isNegative() || player.getDuration().isZero());
+
+            assertTrue(decodes.stream().anyMatch(event -> MCPlayer.class.getName().equals(event.getClass("targetClass").getName())));
+            assertTrue(decodes.stream().anyMatch(event -> MCStats.class.getName().equals(event.getClass("targetClass").getName())));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
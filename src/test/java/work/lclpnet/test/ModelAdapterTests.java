@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.model.*;
+import work.lclpnet.lclpnetwork.util.FixedLayoutDateAdapter;
+import work.lclpnet.lclpnetwork.util.GsonAccess;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelAdapterTests {
+
+    static final String USER = "{\"id\":7,\"name\":\"LCLP\",\"email\":\"lclp@example.com\",\"email_verified_at\":\"2021-01-02T03:04:05.000000Z\"," +
+            "\"created_at\":\"2020-01-02T03:04:05.123456Z\",\"updated_at\":null,\"name_changed_at\":\"2021-06-07 08:09:10\",\"unknown\":[1,{\"a\":2}]}";
+
+    static final String MC_PLAYER = "{\"id\":\"12\",\"uuid\":\"7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a\",\"points\":100,\"coins\":null,\"language\":\"en_us\"," +
+            "\"last_seen\":\"2022-03-04T05:06:07.000000Z\",\"mc_user\":{\"user_id\":7,\"uuid\":\"7357a549-fb18-4c0b-9f5e-4a0c1d9f2d2a\"," +
+            "\"created_at\":\"2020-01-02T03:04:05.000000Z\",\"user\":" + USER + ",\"player\":null}}";
+
+    static final String MC_STATS = "{\"schema_version\":1,\"stats\":[" +
+            "{\"type\":\"general\",\"name\":\"general\",\"title\":\"General\",\"icon\":{\"minecraft\":\"minecraft:book\"}," +
+            "\"properties\":{\"joins\":{\"type\":\"int\",\"value\":42},\"last_join\":{\"type\":\"date\",\"value\":\"2022-03-04T05:06:07.000000Z\"}},\"children\":[]}," +
+            "{\"type\":\"game\",\"name\":\"bedwars\",\"title\":\"BedWars\",\"icon\":null,\"properties\":{\"wins\":{\"type\":\"int\",\"value\":3}," +
+            "\"unknown\":{\"type\":\"float\",\"value\":null}},\"extra\":{\"color\":\"red\",\"nested\":{\"a\":[1,2]}}," +
+            "\"children\":[{\"type\":\"group\",\"name\":\"solo\",\"title\":\"Solo\",\"properties\":{\"wins\":{\"type\":\"int\",\"value\":1}}}]}" +
+            "]}";
+
+    /**
+     * Gson's reflective decoding, as before the model adapters were introduced.
+     */
+    static final Gson REFLECTIVE = new GsonBuilder()
+            .excludeFieldsWithoutExposeAnnotation()
+            .registerTypeAdapter(Date.class, new FixedLayoutDateAdapter.UTC())
+            .create();
+
+    @Test
+    void sameAsReflective() {
+        assertSameAsReflective(USER, User.class);
+        assertSameAsReflective(MC_PLAYER, MCPlayer.class);
+        assertSameAsReflective(MC_STATS, MCStats.class);
+        assertSameAsReflective("[" + MC_PLAYER + ",null]", MCPlayer[].class);
+    }
+
+    @Test
+    void userFields() {
+        User user = JsonSerializable.parse(USER, User.class);
+        assertEquals(7, user.getId());
+        assertEquals("lclp@example.com", user.getEmail());
+        assertNotNull(user.getEmailVerifiedAt());
+        assertNotNull(user.getNameChangedAt());
+        assertNull(user.getUpdatedAt());
+
+        JsonObject json = user.toJson().getAsJsonObject();
+        assertFalse(json.has("email"));
+        assertFalse(json.has("email_verified_at"));
+        assertEquals("2021-06-07 08:09:10", json.get("name_changed_at").getAsString());
+    }
+
+    @Test
+    void statsFields() {
+        MCStats stats = JsonSerializable.parse(MC_STATS, MCStats.class);
+        assertEquals(1, stats.getSchemaVersion());
+
+        MCStats.Entry bedwars = stats.getModule("bedwars");
+        assertNotNull(bedwars);
+        assertEquals(MCStats.EntryType.GAME, bedwars.getType());
+        assertNull(bedwars.getIcon());
+        assertEquals(3, bedwars.getProperties().get("wins").getAsInt());
+        assertNull(bedwars.getProperties().get("unknown").getType());
+        assertEquals("solo", bedwars.getChildren().get(0).getName());
+    }
+
+    @Test
+    void statsPaths() {
+        // decoded by the model adapter, with indices built while decoding, and by reflection, with lazily built indices
+        for (MCStats stats : new MCStats[] {JsonSerializable.parse(MC_STATS, MCStats.class), REFLECTIVE.fromJson(MC_STATS, MCStats.class)}) {
+            assertSame(stats.getStats().get(1), stats.getModule("bedwars"));
+            assertNull(stats.getModule("skywars"));
+
+            assertEquals("solo", Objects.requireNonNull(stats.getEntry("bedwars/solo")).getName());
+            assertSame(stats.getEntry("bedwars/solo"), Objects.requireNonNull(stats.getModule("bedwars")).getEntry("solo"));
+            assertNull(stats.getEntry("bedwars/duo"));
+            assertNull(stats.getEntry("general/solo"));
+
+            assertEquals(3, Objects.requireNonNull(stats.get("bedwars/wins")).getAsInt());
+            assertEquals(1, Objects.requireNonNull(stats.get("bedwars/solo/wins")).getAsInt());
+            assertEquals(42, Objects.requireNonNull(stats.get("general/joins")).getAsInt());
+            assertNull(stats.get("bedwars/losses"));
+            assertNull(stats.get("skywars/wins"));
+            assertNull(stats.get("bedwars"));
+        }
+    }
+
+    @Test
+    void compactValues() {
+        for (MCStats stats : new MCStats[] {JsonSerializable.parse(MC_STATS, MCStats.class), REFLECTIVE.fromJson(MC_STATS, MCStats.class)}) {
+            MCStats.Value joins = Objects.requireNonNull(stats.get("general/joins"));
+            assertEquals(42, joins.getAsInt());
+            assertEquals(42L, joins.getAsLong());
+            assertEquals(new JsonPrimitive(42), joins.getValue());
+
+            long lastJoin = Instant.parse("2022-03-04T05:06:07Z").toEpochMilli();
+            MCStats.Value date = Objects.requireNonNull(stats.get("general/last_join"));
+            assertEquals(lastJoin, date.getAsEpochMillis());
+            assertEquals(lastJoin, date.getAsDate().getTime());
+            assertEquals(new JsonPrimitive("2022-03-04T05:06:07.000000Z"), date.getValue());
+
+            MCStats.Value unknown = Objects.requireNonNull(stats.get("bedwars/unknown"));
+            assertTrue(unknown.isNull());
+            assertEquals(0, unknown.getAsInt());
+            assertEquals(0L, unknown.getAsEpochMillis());
+            assertNull(unknown.getAsDate());
+        }
+
+        MCStats.Value fraction = JsonSerializable.parse("{\"value\":1.5,\"type\":\"int\"}", MCStats.Value.class);
+        assertEquals(new JsonPrimitive(1.5), fraction.getValue());
+        assertEquals(MCStats.ValueType.INTEGER, fraction.getType());
+
+        // the type follows the value
+        MCStats.Value date = JsonSerializable.parse("{\"value\":\"2022-03-04T05:06:07.000000Z\",\"type\":\"date\"}", MCStats.Value.class);
+        assertEquals(Instant.parse("2022-03-04T05:06:07Z").toEpochMilli(), date.getAsEpochMillis());
+    }
+
+    @Test
+    void serializeCompactValues() {
+        MCStats stats = JsonSerializable.parse(MC_STATS, MCStats.class);
+        MCStats.Value joins = Objects.requireNonNull(stats.get("general/joins"));
+        MCStats.Value date = Objects.requireNonNull(stats.get("general/last_join"));
+
+        // compact values must not lose their value, when written by a Gson instance without the model adapters
+        for (Gson gson : new Gson[] {REFLECTIVE, new Gson()}) {
+            JsonObject json = gson.toJsonTree(joins).getAsJsonObject();
+            assertEquals(new JsonPrimitive(42), json.get("value"));
+            assertEquals(new JsonPrimitive("int"), json.get("type"));
+
+            assertEquals(new JsonPrimitive("2022-03-04T05:06:07.000000Z"), gson.toJsonTree(date).getAsJsonObject().get("value"));
+            assertEquals(42, gson.fromJson(gson.toJson(stats), MCStats.class).get("general/joins").getAsInt());
+        }
+    }
+
+    @Test
+    void otherDateLayout() {
+        Gson gson = new GsonBuilder().registerTypeAdapter(Date.class, new FixedLayoutDateAdapter.YMDHMS()).create();
+        String json = "{\"type\":\"date\",\"value\":\"2022-03-04 05:06:07\"}";
+
+        // dates in other layouts are kept as they are, instead of being re-created in the UTC layout
+        MCStats.Value date = gson.fromJson(json, MCStats.Value.class);
+        assertEquals(new JsonPrimitive("2022-03-04 05:06:07"), date.getValue());
+        assertEquals(json, gson.toJson(date));
+    }
+
+    @Test
+    void selectiveStats() throws IOException {
+        MCStats general = MCStats.selectiveAdapter(Collections.singletonList("general")).fromJson(MC_STATS);
+        assertEquals(1, general.getStats().size());
+        assertEquals(2, Objects.requireNonNull(general.getModule("general")).getProperties().size());
+        assertNull(general.getModule("bedwars"));
+
+        MCStats wins = MCStats.selectiveAdapter(Arrays.asList("bedwars/wins", "bedwars/solo/wins")).fromJson(MC_STATS);
+        MCStats.Entry bedwars = Objects.requireNonNull(wins.getModule("bedwars"));
+        assertEquals(1, wins.getStats().size());
+        assertEquals(Collections.singleton("wins"), bedwars.getProperties().keySet());
+        assertEquals(3, Objects.requireNonNull(wins.get("bedwars/wins")).getAsInt());
+        assertEquals(1, Objects.requireNonNull(wins.get("bedwars/solo/wins")).getAsInt());
+        assertEquals("red", bedwars.getExtra().get("color").getAsString());
+
+        // the name follows the other properties of the entry
+        String nameLast = "{\"stats\":[{\"properties\":{\"wins\":{\"type\":\"int\",\"value\":3},\"losses\":{\"type\":\"int\",\"value\":2}}," +
+                "\"children\":[{\"name\":\"solo\"}],\"name\":\"bedwars\"},{\"properties\":{},\"name\":\"general\"}]}";
+        MCStats reordered = MCStats.selectiveAdapter(Collections.singletonList("bedwars/losses")).fromJson(nameLast);
+        assertEquals(1, reordered.getStats().size());
+        assertEquals(2, Objects.requireNonNull(reordered.get("bedwars/losses")).getAsInt());
+        assertNull(reordered.get("bedwars/wins"));
+        assertTrue(Objects.requireNonNull(reordered.getModule("bedwars")).getChildren().isEmpty());
+    }
+
+    @Test
+    void selectiveStatsRoundTrip() {
+        Gson selective = GsonAccess.createGsonBuilder()
+                .registerTypeAdapter(MCStats.class, MCStats.selectiveAdapter(Collections.singletonList("bedwars/wins")))
+                .create();
+
+        MCStats wins = selective.fromJson(MC_STATS, MCStats.class);
+        String json = selective.toJson(wins);
+
+        MCStats decoded = GsonAccess.getGson().fromJson(json, MCStats.class);
+        assertEquals(1, decoded.getStats().size());
+        assertEquals(3, Objects.requireNonNull(decoded.get("bedwars/wins")).getAsInt());
+        assertNull(decoded.get("bedwars/unknown"));
+        assertEquals(GsonAccess.getGson().toJsonTree(wins), GsonAccess.getGson().toJsonTree(decoded));
+        assertEquals(json, selective.toJson(selective.fromJson(json, MCStats.class)));
+        assertEquals("null", selective.toJson(null, MCStats.class));
+    }
+
+    private static <T> void assertSameAsReflective(String json, Class<T> type) {
+        Gson gson = GsonAccess.getGson();
+
+        T expected = REFLECTIVE.fromJson(json, type);
+        T actual = gson.fromJson(json, type);
+
+        // MCStats.Value is stored compactly by the model adapter, so only the model adapter can serialize it again
+        JsonElement expectedJson = REFLECTIVE.toJsonTree(expected);
+        assertEquals(expectedJson, gson.toJsonTree(actual));
+        assertEquals(REFLECTIVE.toJson(expected), gson.toJson(actual));
+    }
+}
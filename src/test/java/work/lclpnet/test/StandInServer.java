@@ -0,0 +1,812 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the LCLPNetwork API, built on the JDK's HTTP server.
+ * It emulates the endpoints used by LCLPNetworkAPI and LCLPMinecraftAPI with a synthetic, deterministic data set,
+ * so that functional and load tests can run without network access or private tokens.
+ * <p>
+ * There are {@link #setPlayerCount(int)} players with the ids 1 to n and the UUIDs {@link #uuid(long)}.
+ * Every player is linked to the user with the same id.
+ * Access tokens and their scopes are registered with {@link #addToken(String, int, String...)}.
+ * <p>
+ * Latency, the size of stats payloads and injected error responses can be changed at any time.
+ * <p>
+ * {@link #https()} starts a server with a self-signed certificate, which clients trust with {@link #getSSLContext()}.
+ */
+public class StandInServer implements AutoCloseable {
+
+    public static final String UNAUTHENTICATED = "{\"message\":\"Unauthenticated.\"}";
+    public static final String INVALID_SCOPES = "{\"message\":\"Invalid scope(s) provided.\"}";
+
+    static {
+        // the JDK's server writes headers and body separately, which otherwise stalls every response on a delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static SSLContext sslContext = null;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong responseBytes = new AtomicLong(), uncompressedBytes = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile int playerCount = 1000;
+    private volatile long latencyNanos = 0L, jitterNanos = 0L;
+    private volatile int statsModules = 4, statsProperties = 8, statsChildren = 2;
+    private volatile boolean etags = false;
+    private boolean paused = false;
+    private volatile String compression = null;
+
+    /**
+     * Starts a server on a free port of the loopback interface, which handles requests on a cached thread pool.
+     * @throws IOException If the server could not be bound.
+     */
+    public StandInServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Starts a server on the loopback interface.
+     * @param port The port to bind to, or 0 for a free port.
+     * @throws IOException If the server could not be bound.
+     */
+    public StandInServer(int port) throws IOException {
+        this(port, null);
+    }
+
+    private StandInServer(int port, @Nullable SSLContext ssl) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        if (ssl == null) this.server = HttpServer.create(address, 1024);
+        else {
+            HttpsServer https = HttpsServer.create(address, 1024);
+            https.setHttpsConfigurator(new HttpsConfigurator(ssl));
+            this.server = https;
+        }
+
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "StandInServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        registerEndpoints();
+
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Starts a HTTPS server on a free port of the loopback interface.
+     * Its self-signed certificate is valid for the loopback address and is trusted by {@link #getSSLContext()}.
+     *
+     * @return The started server.
+     * @throws IOException If the server could not be bound or the certificate could not be created.
+     */
+    public static StandInServer https() throws IOException {
+        return new StandInServer(0, getSSLContext());
+    }
+
+    /**
+     * Gets the SSL context of HTTPS servers, which trusts their self-signed certificate.
+     * The certificate is generated with the JDK's keytool, once per JVM.
+     *
+     * @return The SSL context, which can be used by clients as well.
+     * @throws IOException If the certificate could not be created.
+     */
+    public static synchronized SSLContext getSSLContext() throws IOException {
+        if (sslContext != null) return sslContext;
+
+        File file = File.createTempFile("stand-in", ".p12");
+        char[] password = "stand-in".toCharArray();
+        try {
+            if (!file.delete()) throw new IOException("Could not prepare " + file);
+
+            String keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool").getPath();
+            Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "stand-in", "-keyalg", "EC", "-keysize", "256",
+                    "-dname", "CN=localhost", "-ext", "SAN=ip:127.0.0.1,dns:localhost", "-validity", "2",
+                    "-storetype", "PKCS12", "-keystore", file.getPath(), "-storepass", new String(password), "-keypass", new String(password))
+                    .redirectErrorStream(true).start();
+
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(readAll(in), StandardCharsets.UTF_8);
+            }
+            if (process.waitFor() != 0) throw new IOException("keytool failed: " + output);
+
+            KeyStore keys = KeyStore.getInstance("PKCS12");
+            try (InputStream in = new FileInputStream(file)) {
+                keys.load(in, password);
+            }
+
+            KeyStore trusted = KeyStore.getInstance(KeyStore.getDefaultType());
+            trusted.load(null, null);
+            trusted.setCertificateEntry("stand-in", keys.getCertificate("stand-in"));
+
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keys, password);
+            TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagers.init(trusted);
+
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+            return sslContext = context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return The host of this server, which can be passed to {@link work.lclpnet.lclpnetwork.api.APIAccess#setHost(String)}.
+     */
+    public String getHost() {
+        InetSocketAddress address = server.getAddress();
+        return String.format("%s://%s:%d", server instanceof HttpsServer ? "https" : "http",
+                address.getAddress().getHostAddress(), address.getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /* configuration */
+
+    /**
+     * Sets the number of known players and users.
+     * @param playerCount The number of players.
+     */
+    public void setPlayerCount(int playerCount) {
+        this.playerCount = playerCount;
+    }
+
+    /**
+     * Sets the time the server waits before it answers a request.
+     *
+     * @param latency The minimum latency.
+     * @param jitter A random additional latency of up to this amount.
+     * @param unit The unit of latency and jitter.
+     */
+    public void setLatency(long latency, long jitter, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+        this.jitterNanos = unit.toNanos(jitter);
+    }
+
+    /**
+     * Sets whether requests are held back, after they have been received.
+     * Held requests count as in flight, until the server is resumed.
+     *
+     * @param paused True, if requests should be held back.
+     */
+    public synchronized void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) notifyAll();
+    }
+
+    private synchronized void awaitResume() {
+        while (paused) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the shape of the stats returned by <code>api/mc/stats</code>, when no modules are requested.
+     *
+     * @param modules The number of modules.
+     * @param properties The number of properties of every module and group.
+     * @param children The number of groups of every module.
+     */
+    public void setStatsSize(int modules, int properties, int children) {
+        this.statsModules = modules;
+        this.statsProperties = properties;
+        this.statsChildren = children;
+    }
+
+    /**
+     * Sets whether responses carry an ETag, so that conditional requests can be answered with 304 Not Modified.
+     * @param etags True, if ETags should be sent.
+     */
+    public void setETags(boolean etags) {
+        this.etags = etags;
+    }
+
+    /**
+     * Registers an access token.
+     * The scope "identity[email]" reveals the email of the user.
+     *
+     * @param token The access token.
+     * @param userId The id of the user the token belongs to.
+     * @param scopes The scopes of the token.
+     */
+    public void addToken(String token, int userId, String... scopes) {
+        tokens.put(token, new Token(userId, new HashSet<>(Arrays.asList(scopes))));
+    }
+
+    /**
+     * Lets a fraction of all requests fail with the given status code.
+     * Supported status codes are 401, 403, 429 and 5xx; the error bodies match those of the real API.
+     *
+     * @param status The status code.
+     * @param rate The fraction of requests which should fail, from 0 to 1.
+     */
+    public void setFailure(int status, double rate) {
+        setFailure("*", status, rate);
+    }
+
+    /**
+     * Lets a fraction of the requests to a path fail with the given status code.
+     *
+     * @param path The request path, e.g. <code>api/mc/stats</code>.
+     * @param status The status code.
+     * @param rate The fraction of requests which should fail, from 0 to 1.
+     * @see #setFailure(int, double)
+     */
+    public void setFailure(String path, int status, double rate) {
+        failures.put(path, new Failure(status, rate));
+    }
+
+    /**
+     * Removes every failure injected with {@link #setFailure(String, int, double)}.
+     */
+    public void clearFailures() {
+        failures.clear();
+    }
+
+    /**
+     * Lets every request to a path succeed with a fixed body, e.g. to send empty or malformed bodies.
+     *
+     * @param path The request path, e.g. <code>api/mc/player</code>.
+     * @param body The body to send, or null to respond normally again.
+     */
+    public void setBody(String path, @Nullable String body) {
+        if (body == null) bodies.remove(path);
+        else bodies.put(path, body);
+    }
+
+    /**
+     * Sets the compression of response bodies. Bodies are only compressed, if the request accepts the encoding.
+     * @param compression "gzip", "deflate" (zlib wrapped), "raw-deflate" (deflate without the zlib wrapper, as sent by some servers)
+     *                    or null for uncompressed bodies.
+     */
+    public void setCompression(@Nullable String compression) {
+        if (compression != null && !Arrays.asList("gzip", "deflate", "raw-deflate").contains(compression))
+            throw new IllegalArgumentException("Unknown compression " + compression);
+        this.compression = compression;
+    }
+
+    /* statistics */
+
+    /**
+     * @param path The request path, e.g. <code>api/mc/stats</code>.
+     * @return The number of requests received for the path.
+     */
+    public long getRequestCount(String path) {
+        AtomicLong count = requestCounts.get(path);
+        return count == null ? 0L : count.get();
+    }
+
+    /**
+     * @return The number of requests received for any path.
+     */
+    public long getRequestCount() {
+        return requestCounts.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    /**
+     * @return The number of response body bytes sent.
+     */
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    /**
+     * @return The number of response body bytes sent, before they were compressed.
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * @return The number of requests currently being handled.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The highest number of requests handled at the same time.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * @return The number of distinct client connections, over which requests were received.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Resets the request counts, the in-flight maximum and the connection count.
+     */
+    public void resetStatistics() {
+        requestCounts.clear();
+        responseBytes.set(0L);
+        uncompressedBytes.set(0L);
+        maxInFlight.set(0);
+        connections.clear();
+    }
+
+    /* data set */
+
+    /**
+     * @param id The id of a player.
+     * @return The UUID of the player.
+     */
+    public static String uuid(long id) {
+        return String.format("00000000-0000-4000-8000-%012x", id);
+    }
+
+    @Nullable
+    private Long playerId(@Nullable JsonElement uuid) {
+        if (uuid == null || !uuid.isJsonPrimitive()) return null;
+
+        String str = uuid.getAsString();
+        if (str.length() != 36 || !str.startsWith("00000000-0000-4000-8000-")) return null;
+
+        try {
+            return knownId(Long.parseLong(str.substring(24), 16));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private Long knownId(@Nullable JsonElement id) {
+        if (id == null || !id.isJsonPrimitive() || !id.getAsJsonPrimitive().isNumber()) return null;
+        return knownId(id.getAsLong());
+    }
+
+    @Nullable
+    private Long knownId(long id) {
+        return id >= 1 && id <= playerCount ? id : null;
+    }
+
+    private static JsonObject user(long id, boolean email) {
+        JsonObject user = new JsonObject();
+        user.addProperty("id", id);
+        user.addProperty("name", "User" + id);
+        if (email) {
+            user.addProperty("email", String.format("user%d@example.com", id));
+            // users with odd ids have verified their email
+            if (id % 2 != 0) user.addProperty("email_verified_at", "2021-01-02T03:04:05.000000Z");
+            else user.add("email_verified_at", JsonNull.INSTANCE);
+        }
+        user.addProperty("created_at", "2020-01-02T03:04:05.000000Z");
+        user.addProperty("updated_at", "2021-01-02T03:04:05.000000Z");
+        user.addProperty("name_changed_at", "2021-06-07 08:09:10");
+        return user;
+    }
+
+    private static JsonObject mcUser(long id) {
+        JsonObject mcUser = new JsonObject();
+        mcUser.addProperty("user_id", id);
+        mcUser.addProperty("uuid", uuid(id));
+        mcUser.addProperty("created_at", "2020-01-02T03:04:05.000000Z");
+        mcUser.add("user", user(id, false));
+        return mcUser;
+    }
+
+    private static JsonObject mcPlayer(long id) {
+        JsonObject player = new JsonObject();
+        player.addProperty("id", String.valueOf(id));
+        player.addProperty("uuid", uuid(id));
+        player.addProperty("points", id * 10);
+        player.addProperty("coins", id * 3);
+        player.addProperty("language", "en_us");
+        player.addProperty("last_seen", "2022-03-04T05:06:07.000000Z");
+        player.add("mc_user", mcUser(id));
+        return player;
+    }
+
+    private JsonObject stats(@Nullable JsonElement modules) {
+        JsonArray entries = new JsonArray();
+
+        if (modules != null && modules.isJsonArray()) {
+            for (JsonElement module : modules.getAsJsonArray())
+                entries.add(statsEntry("game", module.getAsString(), statsProperties, statsChildren));
+        } else {
+            for (int m = 0; m < statsModules; m++)
+                entries.add(statsEntry(m == 0 ? "general" : "game", m == 0 ? "general" : "module" + m, statsProperties, statsChildren));
+        }
+
+        JsonObject stats = new JsonObject();
+        stats.addProperty("schema_version", 1);
+        stats.add("stats", entries);
+        return stats;
+    }
+
+    private static JsonObject statsEntry(String type, String name, int properties, int children) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("type", type);
+        entry.addProperty("name", name);
+        entry.addProperty("title", name.toUpperCase(Locale.ROOT));
+
+        JsonObject icon = new JsonObject();
+        icon.addProperty("minecraft", "minecraft:book");
+        entry.add("icon", icon);
+
+        JsonObject props = new JsonObject();
+        for (int p = 0; p < properties; p++) {
+            JsonObject value = new JsonObject();
+            if (p % 4 == 3) {
+                value.addProperty("type", "date");
+                value.addProperty("value", "2022-03-04T05:06:07.000000Z");
+                props.add("last" + p, value);
+            } else {
+                value.addProperty("type", "int");
+                value.addProperty("value", p * 37);
+                props.add("stat" + p, value);
+            }
+        }
+        entry.add("properties", props);
+
+        JsonArray groups = new JsonArray();
+        for (int c = 0; c < children; c++) groups.add(statsEntry("group", "group" + c, properties, 0));
+        entry.add("children", groups);
+
+        return entry;
+    }
+
+    /* endpoints */
+
+    private void registerEndpoints() {
+        endpoint("api/auth", "GET", null, (token, body) -> Response.json(200, "{\"message\":\"Authenticated.\"}"));
+        endpoint("api/auth/user", "GET", "identity", (token, body) -> Response.json(200, user(token.userId, token.scopes.contains("identity[email]"))));
+        endpoint("api/auth/verified", "GET", "identity", (token, body) -> {
+            JsonObject verified = new JsonObject();
+            verified.addProperty("email_verified", token.userId % 2 != 0);
+            return Response.json(200, verified);
+        });
+        endpoint("api/auth/revoke-token", "GET", "revoke-self", (token, body) -> Response.json(200, "{\"message\":\"Successfully logged out\"}"));
+        endpoint("api/mc/request-mclink-token", "POST", "minecraft", (token, body) -> {
+            JsonObject linkToken = new JsonObject();
+            linkToken.addProperty("token", UUID.randomUUID().toString());
+            return Response.json(201, linkToken);
+        });
+
+        endpoint("api/auth/user-by-id", "POST", (token, body) -> {
+            Long id = knownId(required(body, "userId"));
+            if (id == null) return Response.json(404, "{\"message\":\"User not found.\"}");
+
+            JsonObject extra = new JsonObject();
+            extra.add("extra", user(id, false));
+            return Response.json(200, extra);
+        });
+
+        endpoint("api/mc/user", "POST", (token, body) -> single(playerId(required(body, "uuid")), StandInServer::mcUser));
+        endpoint("api/mc/user-by-user-id", "POST", (token, body) -> single(knownId(required(body, "userId")), StandInServer::mcUser));
+        endpoint("api/mc/player", "POST", (token, body) -> single(playerId(required(body, "uuid")), StandInServer::mcPlayer));
+        endpoint("api/mc/player-by-id", "POST", (token, body) -> single(knownId(required(body, "playerId")), StandInServer::mcPlayer));
+        endpoint("api/mc/player-by-user-id", "POST", (token, body) -> single(knownId(required(body, "userId")), StandInServer::mcPlayer));
+
+        endpoint("api/mc/users", "POST", (token, body) -> bulk(required(body, "uuids"), this::playerId, StandInServer::mcUser));
+        endpoint("api/mc/users-by-user-id", "POST", (token, body) -> bulk(required(body, "userIds"), this::knownId, StandInServer::mcUser));
+        endpoint("api/mc/players", "POST", (token, body) -> bulk(required(body, "uuids"), this::playerId, StandInServer::mcPlayer));
+        endpoint("api/mc/players-by-id", "POST", (token, body) -> bulk(required(body, "playerIds"), this::knownId, StandInServer::mcPlayer));
+
+        endpoint("api/mc/stats", "POST", (token, body) -> {
+            if (playerId(required(body, "uuid")) == null) return Response.json(404, "{\"message\":\"Player not found.\"}");
+            return Response.json(200, stats(body.get("modules")));
+        });
+    }
+
+    private void endpoint(String path, String method, Handler handler) {
+        endpoints.put(path, new Endpoint(method, null, false, handler));
+    }
+
+    private void endpoint(String path, String method, @Nullable String scope, Handler handler) {
+        endpoints.put(path, new Endpoint(method, scope, true, handler));
+    }
+
+    private static JsonElement required(JsonObject body, String property) {
+        JsonElement value = body.get(property);
+        if (value == null || value.isJsonNull()) throw new ValidationException(property);
+        return value;
+    }
+
+    private static Response single(@Nullable Long id, LongFunction<JsonObject> mapper) {
+        if (id == null) return Response.json(404, "{\"message\":\"Not found.\"}");
+        return Response.json(200, mapper.apply(id));
+    }
+
+    private static Response bulk(JsonElement keys, Function<JsonElement, Long> resolver,
+                                 LongFunction<JsonObject> mapper) {
+        if (!keys.isJsonArray()) throw new ValidationException("keys");
+
+        JsonArray found = new JsonArray();
+        for (JsonElement key : keys.getAsJsonArray()) {
+            Long id = resolver.apply(key);
+            if (id != null) found.add(mapper.apply(id));
+        }
+
+        return Response.json(200, found);
+    }
+
+    /* request handling */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        connections.add(exchange.getRemoteAddress());
+
+        try {
+            String path = exchange.getRequestURI().getPath().substring(1);
+            requestCounts.computeIfAbsent(path, p -> new AtomicLong()).incrementAndGet();
+
+            // the request is read completely, even if it is not needed.
+            // otherwise, the connection may be reset while the client already re-uses it
+            byte[] requestBody = readAll(exchange.getRequestBody());
+
+            awaitResume();
+            delay();
+
+            Response response = respond(path, exchange, requestBody);
+            send(exchange, response);
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        long nanos = latencyNanos, jitter = jitterNanos;
+        if (jitter > 0) nanos += ThreadLocalRandom.current().nextLong(jitter);
+        if (nanos <= 0) return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Response respond(String path, HttpExchange exchange, byte[] requestBody) throws IOException {
+        Failure failure = failures.get(path);
+        if (failure == null) failure = failures.get("*");
+        if (failure != null && ThreadLocalRandom.current().nextDouble() < failure.rate) return failure.response();
+
+        String fixedBody = bodies.get(path);
+        if (fixedBody != null) return Response.json(200, fixedBody);
+
+        Endpoint endpoint = endpoints.get(path);
+        if (endpoint == null) return Response.json(404, "{\"message\":\"\"}");
+        if (!endpoint.method.equals(exchange.getRequestMethod())) return Response.json(405, "{\"message\":\"Method not allowed.\"}");
+
+        Token token = null;
+        if (endpoint.auth) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization != null && authorization.startsWith("Bearer ")) token = tokens.get(authorization.substring(7));
+
+            if (token == null) return Response.json(401, UNAUTHENTICATED);
+            if (endpoint.scope != null && token.scopes.stream().noneMatch(s -> s.equals(endpoint.scope) || s.startsWith(endpoint.scope + "[")))
+                return Response.json(403, INVALID_SCOPES);
+        }
+
+        JsonObject body;
+        try (InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(requestBody), StandardCharsets.UTF_8)) {
+            JsonElement parsed = JsonParser.parseReader(reader);
+            body = parsed.isJsonObject() ? parsed.getAsJsonObject() : new JsonObject();
+        } catch (JsonParseException e) {
+            return Response.json(400, "{\"message\":\"Malformed JSON.\"}");
+        }
+
+        Response response;
+        try {
+            response = endpoint.handler.handle(token, body);
+        } catch (ValidationException e) {
+            return Response.json(422, String.format("{\"message\":\"The given data was invalid.\",\"errors\":{\"%s\":[\"The %s field is required.\"]}}",
+                    e.getMessage(), e.getMessage()));
+        }
+
+        if (etags && response.status == 200) {
+            response.etag = String.format("\"%08x\"", Arrays.hashCode(response.body));
+            if (response.etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                Response notModified = new Response(304, new byte[0]);
+                notModified.etag = response.etag;
+                return notModified;
+            }
+        }
+
+        return response;
+    }
+
+    private void send(HttpExchange exchange, Response response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (response.etag != null) exchange.getResponseHeaders().set("ETag", response.etag);
+        if (response.status == 429) exchange.getResponseHeaders().set("Retry-After", "1");
+
+        if (response.body.length == 0) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+
+        byte[] body = compress(response.body, exchange);
+
+        // counted before sending, so that clients see the statistics as soon as they received the response
+        responseBytes.addAndGet(body.length);
+        uncompressedBytes.addAndGet(response.body.length);
+
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private byte[] compress(byte[] body, HttpExchange exchange) throws IOException {
+        String compression = this.compression;
+        if (compression == null) return body;
+
+        String encoding = compression.equals("gzip") ? "gzip" : "deflate";
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accepted == null || !accepted.contains(encoding)) return body;
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, compression.equals("raw-deflate"));
+        try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed, deflater)) {
+            out.write(body);
+        } finally {
+            deflater.end();
+        }
+
+        exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        return compressed.toByteArray();
+    }
+
+    private interface Handler {
+        Response handle(@Nullable Token token, JsonObject body);
+    }
+
+    private static class Endpoint {
+
+        final String method;
+        final String scope;
+        final boolean auth;
+        final Handler handler;
+
+        Endpoint(String method, @Nullable String scope, boolean auth, Handler handler) {
+            this.method = method;
+            this.scope = scope;
+            this.auth = auth;
+            this.handler = handler;
+        }
+    }
+
+    private static class Token {
+
+        final int userId;
+        final Set<String> scopes;
+
+        Token(int userId, Set<String> scopes) {
+            this.userId = userId;
+            this.scopes = scopes;
+        }
+    }
+
+    private static class Failure {
+
+        final int status;
+        final double rate;
+
+        Failure(int status, double rate) {
+            this.status = status;
+            this.rate = rate;
+        }
+
+        Response response() {
+            switch (status) {
+                case 401: return Response.json(status, UNAUTHENTICATED);
+                case 403: return Response.json(status, INVALID_SCOPES);
+                case 429: return Response.json(status, "{\"message\":\"Too Many Attempts.\"}");
+                default: return Response.json(status, "{\"message\":\"Server Error\"}");
+            }
+        }
+    }
+
+    private static class Response {
+
+        final int status;
+        final byte[] body;
+        String etag = null;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response json(int status, Object json) {
+            return new Response(status, json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class ValidationException extends RuntimeException {
+
+        private static final long serialVersionUID = 4172904567019313745L;
+
+        ValidationException(String property) {
+            super(property, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.LCLPNetworkAPI;
+import work.lclpnet.lclpnetwork.api.*;
+import work.lclpnet.lclpnetwork.cache.LookupCache;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+import work.lclpnet.lclpnetwork.model.MCStats;
+import work.lclpnet.lclpnetwork.model.MCUser;
+import work.lclpnet.lclpnetwork.model.User;
+import work.lclpnet.lclpnetwork.util.GsonAccess;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static work.lclpnet.lclpnetwork.util.JsonBuilder.object;
+
+/**
+ * Functional tests against the {@link StandInServer}, which do not need network access or private tokens.
+ */
+public class StandInServerTests {
+
+    @Test
+    void lookups() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access(server));
+
+            User user = api.getUserById(1).join();
+            assertNotNull(user);
+            assertEquals(1, user.getId());
+            assertNull(api.getUserById(Integer.MAX_VALUE).join());
+
+            MCPlayer player = api.getMCPlayerByUUID(StandInServer.uuid(5)).join();
+            assertNotNull(player);
+            assertEquals(5, player.getId());
+            assertEquals(StandInServer.uuid(5), player.getUuid());
+            assertNull(api.getMCPlayerByUUID(UUID.randomUUID().toString()).join());
+
+            MCUser mcUser = api.getMCUserByUserId(7).join();
+            assertNotNull(mcUser);
+            assertEquals(StandInServer.uuid(7), mcUser.getUuid());
+            assertEquals(7, Objects.requireNonNull(api.getUserByUUID(StandInServer.uuid(7)).join()).getId());
+            assertNull(api.getUserByUUID(StandInServer.uuid(100_000)).join());
+        }
+    }
+
+    @Test
+    void bulkAndBatching() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setPlayerCount(10);
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access(server));
+
+            Map<String, MCPlayer> players = api.getMCPlayersByUUIDs(Arrays.asList(StandInServer.uuid(1), StandInServer.uuid(2), StandInServer.uuid(11))).join();
+            assertEquals(new HashSet<>(Arrays.asList(StandInServer.uuid(1), StandInServer.uuid(2))), players.keySet());
+            assertEquals(Collections.singleton(3L), api.getMCPlayersByIds(Arrays.asList(3L, 42L)).join().keySet());
+            assertEquals(2, api.getMCUsersByUserIds(Arrays.asList(4L, 5L)).join().size());
+
+            server.resetStatistics();
+            api.enableBatching(50, TimeUnit.MILLISECONDS, 100);
+
+            List<CompletableFuture<MCPlayer>> futures = new ArrayList<>();
+            for (int i = 1; i <= 12; i++) futures.add(api.getMCPlayerByUUID(StandInServer.uuid(i)));
+
+            for (int i = 1; i <= 12; i++) {
+                MCPlayer player = futures.get(i - 1).join();
+                if (i <= 10) assertEquals(i, Objects.requireNonNull(player).getId());
+                else assertNull(player);
+            }
+
+            assertEquals(1, server.getRequestCount("api/mc/players"));
+            assertEquals(0, server.getRequestCount("api/mc/player"));
+        }
+    }
+
+    @Test
+    void stats() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setStatsSize(3, 4, 1);
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access(server));
+
+            MCStats stats = api.getStats(StandInServer.uuid(1), null).join();
+            assertEquals(3, stats.getStats().size());
+            assertEquals(74, Objects.requireNonNull(stats.get("module1/group0/stat2")).getAsInt());
+
+            MCStats selected = api.getStats(StandInServer.uuid(1), Collections.singletonList("bedwars")).join();
+            assertEquals(1, selected.getStats().size());
+            assertNotNull(selected.getModule("bedwars"));
+
+            try {
+                api.getStats(StandInServer.uuid(100_000), null).join();
+                fail("This statement should not be reached.");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof ResponseEvaluationException);
+            }
+        }
+    }
+
+    @Test
+    void authentication() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.addToken("identity", 21, "identity");
+            server.addToken("minecraft", 22, "identity[email]", "minecraft");
+
+            LCLPNetworkAPI anonymous = new LCLPNetworkAPI(access(server));
+            CompletionException unauthenticated = assertThrows(CompletionException.class, () -> anonymous.getCurrentUser().join());
+            assertEquals(APIException.UNAUTHENTICATED, unauthenticated.getCause());
+
+            LCLPMinecraftAPI identity = new LCLPMinecraftAPI(auth(server, "identity"));
+            User user = identity.getCurrentUser().join();
+            assertEquals(21, user.getId());
+            assertNull(user.getEmail());
+            assertTrue(identity.isCurrentUserVerified().join());
+
+            CompletionException invalidScopes = assertThrows(CompletionException.class, () -> identity.requestMCLinkToken().join());
+            assertEquals(APIException.INVALID_SCOPES, invalidScopes.getCause());
+
+            LCLPMinecraftAPI minecraft = new LCLPMinecraftAPI(auth(server, "minecraft"));
+            assertNotNull(minecraft.getCurrentUser().join().getEmail());
+            assertFalse(minecraft.isCurrentUserVerified().join());
+            assertNotNull(minecraft.requestMCLinkToken().join());
+
+            CompletionException invalidToken = assertThrows(CompletionException.class, () -> APIAccess.withAuthCheck(auth(server, "unknown")).join());
+            assertTrue(invalidToken.getCause() instanceof APIException);
+        }
+    }
+
+    @Test
+    void injectedFailures() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            APIAccess access = access(server);
+
+            server.setFailure("api/mc/player", 429, 1.0);
+            APIResponse tooMany = access.post("api/mc/player", object().set("uuid", StandInServer.uuid(1)).createObject()).join();
+            assertEquals(429, tooMany.getResponseCode());
+            assertEquals("Too Many Attempts.", tooMany.getJsonStatusMessage());
+
+            server.setFailure(503, 1.0);
+            assertEquals(503, access.get("api/auth").join().getResponseCode());
+            assertEquals(429, access.sendAPIRequestSync("api/mc/player", "POST", null).getResponseCode());
+
+            server.setFailure(401, 1.0);
+            CompletionException unauthenticated = assertThrows(CompletionException.class, () -> access.get("api/auth").join());
+            assertEquals(APIException.UNAUTHENTICATED, unauthenticated.getCause());
+
+            server.setFailure(403, 1.0);
+            assertThrows(APIException.class, () -> access.sendAPIRequestSync("api/auth", "GET", null));
+
+            server.clearFailures();
+            APIResponse invalid = access.sendAPIRequestSync("api/mc/player", "POST", null);
+            assertEquals(422, invalid.getResponseCode());
+            assertTrue(invalid.hasValidationViolations());
+        }
+    }
+
+    @Test
+    void latencyAndConcurrency() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setLatency(100, 0, TimeUnit.MILLISECONDS);
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access(server));
+
+            long start = System.nanoTime();
+            List<CompletableFuture<MCPlayer>> futures = new ArrayList<>();
+            for (int i = 1; i <= 8; i++) futures.add(api.getMCPlayerById(i));
+            futures.forEach(CompletableFuture::join);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(millis >= 100, "Requests finished before the configured latency");
+            assertTrue(server.getMaxInFlight() > 1, "Requests were not handled concurrently");
+            assertEquals(8, server.getRequestCount());
+            assertTrue(server.getResponseBytes() > 0);
+        }
+    }
+
+    @Test
+    void conditionalRequests() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setETags(true);
+            APIAccess access = access(server);
+            access.setConditionalRequestCache(new ConditionalRequestCache(100));
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+
+            MCPlayer first = api.getMCPlayerById(3).join();
+            MCPlayer second = api.getMCPlayerById(3).join();
+            assertSame(first, second);
+            assertEquals(2, server.getRequestCount("api/mc/player-by-id"));
+
+            // the stored response was decoded from the stream, a raw caller must not receive it
+            APIResponse raw = access.post("api/mc/player-by-id", object().set("playerId", 3).createObject()).join();
+            assertEquals(200, raw.getResponseCode());
+            assertNotNull(raw.getRawResponse());
+            assertEquals(3, server.getRequestCount("api/mc/player-by-id"));
+        }
+    }
+
+    @Test
+    void cachedLookups() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            server.setPlayerCount(10);
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access(server));
+            LookupCache<String, MCPlayer> cache = LookupCache.<String, MCPlayer>builder()
+                    .expireAfterWrite(1, TimeUnit.MINUTES)
+                    .negativeCaching(100, 1, TimeUnit.MINUTES)
+                    .build();
+            api.setMCPlayerCache(cache);
+
+            // an outage must not be cached as "not tracked"
+            server.setFailure("api/mc/player", 503, 1);
+            CompletionException e = assertThrows(CompletionException.class, () -> api.getMCPlayerByUUID(StandInServer.uuid(1)).join());
+            assertTrue(e.getCause() instanceof ResponseEvaluationException);
+            assertEquals(0, cache.negativeSize());
+
+            server.clearFailures();
+            assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(1)).join());
+            assertEquals(1, cache.size());
+
+            // unknown players are cached as absent
+            assertNull(api.getMCPlayerByUUID(StandInServer.uuid(11)).join());
+            assertNull(api.getMCPlayerByUUID(StandInServer.uuid(11)).join());
+            assertEquals(1, cache.negativeSize());
+            assertEquals(3, server.getRequestCount("api/mc/player"));
+        }
+    }
+
+    @Test
+    void streamedDecoding() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            APIAccess access = access(server);
+            RequestBody body = RequestBody.of(object().set("uuid", StandInServer.uuid(1)).createObject());
+            TypeAdapter<MCPlayer> adapter = GsonAccess.getGson().getAdapter(MCPlayer.class);
+
+            // the default Gson instance and specific adapters must behave the same
+            List<Supplier<CompletableFuture<APIResponse>>> requests = Arrays.asList(
+                    () -> access.post("api/mc/player", body, MCPlayer.class),
+                    () -> access.post("api/mc/player", body, MCPlayer.class, adapter));
+
+            for (Supplier<CompletableFuture<APIResponse>> request : requests) {
+                server.setBody("api/mc/player", "");
+                APIResponse empty = request.get().join();
+                assertEquals(200, empty.getResponseCode());
+                assertNull(empty.getResponseAs(MCPlayer.class));
+
+                // decode failures only surface when the body is accessed, just like for bodies kept as string
+                server.setBody("api/mc/player", "{\"id\":1,\"uuid\":");
+                APIResponse malformed = request.get().join();
+                assertEquals(200, malformed.getResponseCode());
+                assertThrows(JsonSyntaxException.class, () -> malformed.getResponseAs(MCPlayer.class));
+                assertNull(malformed.getResponseTree());
+
+                server.setBody("api/mc/player", null);
+                assertEquals(StandInServer.uuid(1), request.get().join().getResponseAs(MCPlayer.class).getUuid());
+            }
+        }
+    }
+
+    static APIAccess access(StandInServer server) {
+        APIAccess access = new APIAccess();
+        access.setHost(server.getHost());
+        return access;
+    }
+
+    static APIAuthAccess auth(StandInServer server, String token) {
+        APIAuthAccess access = new APIAuthAccess(token);
+        access.setHost(server.getHost());
+        return access;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2022 LCLP.
+ *
+ * Licensed under the MIT License. For more information, consider the LICENSE file in the project's root directory.
+ */
+
+package work.lclpnet.test;
+
+import org.junit.jupiter.api.Test;
+import work.lclpnet.lclpnetwork.api.APIAccess;
+import work.lclpnet.lclpnetwork.api.URLConnectionTransport;
+import work.lclpnet.lclpnetwork.ext.LCLPMinecraftAPI;
+import work.lclpnet.lclpnetwork.model.MCPlayer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class URLConnectionTransportTests {
+
+    @Test
+    void keepAlive() throws IOException {
+        try (StandInServer server = new StandInServer()) {
+            URLConnectionTransport transport = new URLConnectionTransport();
+            LCLPMinecraftAPI api = api(server, transport);
+
+            for (int i = 1; i <= 5; i++) assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(i)).join());
+            assertEquals(5, server.getConnectionCount());
+
+            server.resetStatistics();
+            transport.setKeepAlive(true);
+
+            for (int i = 1; i <= 5; i++) assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(i)).join());
+            assertEquals(1, server.getConnectionCount());
+
+            // the sockets of plain HTTP connections are not visible to the transport
+            assertEquals(0, transport.getOpenedConnections());
+            assertEquals(0, transport.getReusedConnections());
+        }
+    }
+
+    @Test
+    void httpsConnectionCounters() throws IOException {
+        try (StandInServer server = StandInServer.https()) {
+            URLConnectionTransport transport = new URLConnectionTransport();
+            transport.setSSLSocketFactory(StandInServer.getSSLContext().getSocketFactory());
+            transport.setKeepAlive(true);
+            LCLPMinecraftAPI api = api(server, transport);
+
+            for (int i = 1; i <= 5; i++) assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(i)).join());
+
+            assertEquals(1, server.getConnectionCount());
+            assertEquals(1, transport.getOpenedConnections());
+            assertEquals(4, transport.getReusedConnections());
+        }
+    }
+
+    @Test
+    void idleTimeout() throws Exception {
+        try (StandInServer server = StandInServer.https()) {
+            URLConnectionTransport transport = new URLConnectionTransport();
+            transport.setSSLSocketFactory(StandInServer.getSSLContext().getSocketFactory());
+            transport.setKeepAlive(true);
+            transport.setIdleTimeout(100, TimeUnit.MILLISECONDS);
+            LCLPMinecraftAPI api = api(server, transport);
+
+            assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(1)).join());
+            assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(2)).join());
+            assertEquals(1, transport.getOpenedConnections());
+
+            // the host has been idle for longer than the timeout, so its connection is closed and a new one is opened
+            Thread.sleep(300);
+            assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(3)).join());
+
+            assertEquals(2, transport.getOpenedConnections());
+            assertEquals(1, transport.getReusedConnections());
+            assertEquals(2, server.getConnectionCount());
+        }
+    }
+
+    @Test
+    void maxConnectionsPerHost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (StandInServer server = new StandInServer()) {
+            URLConnectionTransport transport = new URLConnectionTransport();
+            APIAccess access = StandInServerTests.access(server);
+            access.setTransport(transport);
+            access.setCustomExecutor(executor);
+            LCLPMinecraftAPI api = new LCLPMinecraftAPI(access);
+
+            // the host is known before the limit is set
+            assertNotNull(api.getMCPlayerByUUID(StandInServer.uuid(1)).join());
+
+            transport.setMaxConnectionsPerHost(2);
+            server.resetStatistics();
+            server.setPaused(true);
+
+            List<CompletableFuture<MCPlayer>> futures = new ArrayList<>();
+            for (int i = 1; i <= 8; i++) futures.add(api.getMCPlayerByUUID(StandInServer.uuid(i)));
+
+            awaitInFlight(server, 2);
+            Thread.sleep(100);  // give further requests the chance to exceed the limit
+            assertEquals(2, server.getInFlight());
+
+            // raising the limit also releases requests which are already waiting
+            transport.setMaxConnectionsPerHost(8);
+            awaitInFlight(server, 8);
+
+            server.setPaused(false);
+            futures.forEach(future -> assertNotNull(future.join()));
+
+            assertEquals(8, server.getRequestCount());
+            assertEquals(8, server.getMaxInFlight());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitInFlight(StandInServer server, int inFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getInFlight() != inFlight) {
+            if (System.nanoTime() > deadline) fail(String.format("expected %d requests in flight, but were %d", inFlight, server.getInFlight()));
+            Thread.sleep(10);
+        }
+    }
+
+    private static LCLPMinecraftAPI api(StandInServer server, URLConnectionTransport transport) {
+        APIAccess access = StandInServerTests.access(server);
+        access.setTransport(transport);
+        return new LCLPMinecraftAPI(access);
+    }
+}
@@ -6,6 +6,7 @@
 
 package work.lclpnet.test;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import work.lclpnet.lclpnetwork.LCLPNetworkAPI;
 import work.lclpnet.lclpnetwork.api.APIAccess;
@@ -22,6 +23,8 @@ import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+// requires the live API (and partially private tokens), run with the onlineTest task
+@Tag("online")
 public class UserTests {
 
     @Test